@@ -0,0 +1,150 @@
+// Pomiar czasu każdego efektu dla różnych rozmiarów obrazu, typów rastra i strategii wykonania:
+// perPixel - pierwotna pętla getRGB/setRGB z processPixel (nasycenie przez Color.RGBtoHSB/HSBtoRGB),
+// raster - PixelEngine na tablicy int[] w jednym wątku,
+// parallel - TileExecutor dzielący obraz na pasy wierszy,
+// vector - jak raster, ale z kernelami na Vector API (imaging.effects.VectorKernels).
+// raster i parallel zawsze używają kerneli skalarnych, więc są porównywalne z wcześniejszymi pomiarami.
+// Wynik każdej strategii to nowy obraz TYPE_INT_ARGB, więc porównujemy tę samą pracę. Przed pomiarem sprawdzamy, czy
+// kernel wektorowy daje dokładnie te same piksele co skalarny.
+
+package benchmarks;
+
+import imaging.EffectStep;
+import imaging.PixelEngine;
+import imaging.TileExecutor;
+import imaging.effects.Simd;
+import org.openjdk.jmh.annotations.*;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", "--add-modules=jdk.incubator.vector"})
+public class EffectBenchmark {
+    private static final float SATURATION = 1.5f; // Wartość suwaka 150
+
+    @Param({"grayscale", "invert", "sepia", "blue", "saturation"})
+    public String effect;
+
+    @Param({"1", "12", "50"})
+    public int megapixels;
+
+    @Param({"INT_RGB", "3BYTE_BGR", "INT_ARGB"})
+    public String imageType;
+
+    private BufferedImage image;
+    private PixelEngine.Kernel kernel;
+    private PixelEngine.Kernel vectorKernel;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        // Proporcje 4:3, jak w typowym zdjęciu z aparatu
+        int width = (int) Math.round(Math.sqrt(megapixels * 1_000_000 * 4 / 3.0));
+        int height = megapixels * 1_000_000 / width;
+        image = randomImage(width, height, typeOf(imageType));
+        Simd.setEnabled(false);
+        kernel = kernel();
+        Simd.setEnabled(true);
+        vectorKernel = kernel();
+        if (!Arrays.equals(PixelEngine.data(raster()), PixelEngine.data(vector()))) {
+            throw new IllegalStateException("Kernel wektorowy daje inne piksele niż skalarny: " + effect);
+        }
+    }
+
+    private PixelEngine.Kernel kernel() {
+        return "saturation".equals(effect) ? EffectStep.saturation(SATURATION).kernel() : PixelEngine.kernel(effect);
+    }
+
+    @Benchmark
+    public BufferedImage perPixel() {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage result = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                result.setRGB(x, y, processPixel(image.getRGB(x, y), effect));
+            }
+        }
+        return result;
+    }
+
+    @Benchmark
+    public BufferedImage raster() {
+        return PixelEngine.apply(image, kernel);
+    }
+
+    @Benchmark
+    public BufferedImage vector() {
+        return PixelEngine.apply(image, vectorKernel);
+    }
+
+    @Benchmark
+    public BufferedImage parallel() {
+        return TileExecutor.shared().apply(image, kernel);
+    }
+
+    // Pierwotna wersja przetwarzania pojedynczego piksela (punkt odniesienia)
+    private static int processPixel(int pixel, String effect) {
+        int r = (pixel >> 16) & 0xff;
+        int g = (pixel >> 8) & 0xff;
+        int b = pixel & 0xff;
+
+        switch (effect) {
+            case "grayscale":
+                int gray = (r + g + b) / 3;
+                return (0xff << 24) | (gray << 16) | (gray << 8) | gray;
+
+            case "invert":
+                return (0xff << 24) | ((255 - r) << 16) | ((255 - g) << 8) | (255 - b);
+
+            case "sepia":
+                int tr = Math.min(255, (int) (0.393 * r + 0.769 * g + 0.189 * b));
+                int tg = Math.min(255, (int) (0.349 * r + 0.686 * g + 0.168 * b));
+                int tb = Math.min(255, (int) (0.272 * r + 0.534 * g + 0.131 * b));
+                return (0xff << 24) | (tr << 16) | (tg << 8) | tb;
+
+            case "blue":
+                return (0xff << 24) | b;
+
+            case "saturation":
+                float[] hsb = Color.RGBtoHSB(r, g, b, null);
+                hsb[1] = Math.min(1.0f, hsb[1] * SATURATION);
+                return Color.getHSBColor(hsb[0], hsb[1], hsb[2]).getRGB();
+
+            default:
+                return pixel;
+        }
+    }
+
+    private static int typeOf(String name) {
+        switch (name) {
+            case "INT_RGB":
+                return BufferedImage.TYPE_INT_RGB;
+            case "3BYTE_BGR":
+                return BufferedImage.TYPE_3BYTE_BGR;
+            case "INT_ARGB":
+                return BufferedImage.TYPE_INT_ARGB;
+            default:
+                throw new IllegalArgumentException("Nieznany typ obrazu: " + name);
+        }
+    }
+
+    // Obraz z losowymi pikselami (stałe ziarno - te same dane w każdym uruchomieniu)
+    private static BufferedImage randomImage(int width, int height, int type) {
+        int[] pixels = new int[width * height];
+        Random random = new Random(42);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xff000000 | random.nextInt(0x1000000);
+        }
+        BufferedImage image = new BufferedImage(width, height, type);
+        image.setRGB(0, 0, width, height, pixels, 0, width);
+        return image;
+    }
+}
@@ -0,0 +1,69 @@
+// Pomiar czasu efektów przestrzennych (EffectChain) w jednym wątku i na pasach TileExecutor. Rozmycie mierzymy dla
+// kilku promieni: do sigma 2 liczone jest dokładnym splotem, powyżej - trzema rozmyciami pudełkowymi, więc czas dla
+// sigma 5 i 50 powinien być podobny. Bufor wyniku wraca do puli po każdym pomiarze, jak przy edycji w GUI.
+
+package benchmarks;
+
+import imaging.BufferPool;
+import imaging.EffectChain;
+import imaging.EffectRegistry;
+import imaging.EffectStep;
+import imaging.PixelEngine;
+import imaging.TileExecutor;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@State(Scope.Benchmark)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms4g", "-Xmx4g", "--add-modules=jdk.incubator.vector"})
+public class SpatialBenchmark {
+    // Efekt w zapisie BatchMain: nazwa[=parametr]
+    @Param({"blur=1", "blur=2", "blur=5", "blur=50", "sharpen", "unsharp", "sobel"})
+    public String effect;
+
+    @Param({"1", "12"})
+    public int megapixels;
+
+    private BufferedImage image;
+    private EffectChain chain;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        int width = (int) Math.round(Math.sqrt(megapixels * 1_000_000 * 4 / 3.0));
+        int height = megapixels * 1_000_000 / width;
+        int[] pixels = new int[width * height];
+        Random random = new Random(42);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = 0xff000000 | random.nextInt(0x1000000);
+        }
+        image = PixelEngine.wrap(pixels, width, height);
+        int separator = effect.indexOf('=');
+        EffectStep step = separator < 0
+                ? EffectStep.of(EffectRegistry.get(effect))
+                : EffectStep.of(effect.substring(0, separator), Float.parseFloat(effect.substring(separator + 1)));
+        chain = EffectChain.of(Collections.singletonList(step));
+    }
+
+    @Benchmark
+    public void sequential(Blackhole blackhole) {
+        consume(blackhole, chain.render(image));
+    }
+
+    @Benchmark
+    public void parallel(Blackhole blackhole) {
+        consume(blackhole, chain.render(image, TileExecutor.shared()));
+    }
+
+    private static void consume(Blackhole blackhole, BufferedImage result) {
+        blackhole.consume(result);
+        BufferPool.shared().release(PixelEngine.data(result));
+    }
+}
@@ -0,0 +1,92 @@
+// Łańcuch efektów punktowych policzony jednym kernelem FusedKernel musi dać te same piksele co kolejne kernele kroków -
+// RenderCache podmienia jeden sposób liczenia na drugi (wynik z pamięci podręcznej plus brakujące kroki). Sprawdzamy
+// wszystkie 2^24 kolorów, z kernelami wektorowymi i skalarnymi; zakres nie jest wielokrotnością porcji FusedKernel.
+// Łańcuchy obejmują ciągi efektów liniowych, które FusedKernel składa w jedną macierz.
+
+package imaging;
+
+import imaging.effects.Simd;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class FusedKernelTest {
+    private static final int COLORS = 1 << 24;
+    private static final int BLOCK = 1 << 20;
+    private static final int MARGIN = 5; // Pierwsze i ostatnie piksele bloku zostają poza zakresem
+
+    private static final List<List<EffectStep>> CHAINS = List.of(
+            List.of(EffectStep.of("grayscale"), EffectStep.of("invert")),
+            List.of(EffectStep.of("invert"), EffectStep.of("grayscale")),
+            List.of(EffectStep.of("blue"), EffectStep.of("invert"), EffectStep.of("grayscale"), EffectStep.of("invert")),
+            List.of(EffectStep.of("brightness", 20), EffectStep.of("invert"), EffectStep.of("grayscale"), EffectStep.of("sepia")),
+            List.of(EffectStep.of("invert"), EffectStep.of("sepia")),
+            List.of(EffectStep.of("sepia"), EffectStep.of("grayscale"), EffectStep.of("blue")),
+            List.of(EffectStep.of("blue"), EffectStep.saturation(1.5f), EffectStep.of("invert")),
+            List.of(EffectStep.of("brightness", 20), EffectStep.of("gamma", 1.8f), EffectStep.of("sepia")),
+            List.of(EffectStep.of("contrast", 40), EffectStep.of("invert"), EffectStep.of("posterize", 4),
+                    EffectStep.saturation(0.5f), EffectStep.of("grayscale")));
+
+    private final boolean simdEnabled = Simd.isEnabled();
+
+    @AfterEach
+    void restoreSimd() {
+        Simd.setEnabled(simdEnabled);
+    }
+
+    @Test
+    void fusedChainsMatchStepByStep() {
+        for (List<EffectStep> chain : CHAINS) {
+            assertSamePixels(chain);
+        }
+    }
+
+    @Test
+    void fusedChainsMatchStepByStepWithScalarKernels() {
+        Simd.setEnabled(false);
+        for (List<EffectStep> chain : CHAINS) {
+            assertSamePixels(chain);
+        }
+    }
+
+    @Test
+    void exactLinearRunsFoldIntoOneKernel() {
+        // invert i blue mają macierze całkowite, więc grayscale na końcu ciągu dokłada jedyne zaokrąglenie
+        assertEquals(1, FusedKernel.compileKernels(List.of(EffectStep.of("invert"), EffectStep.of("blue"),
+                EffectStep.of("grayscale"))).length);
+        // Po grayscale (współczynniki 1/3) ciąg się kończy, a sepia nie jest dokładna, więc liczy ją jej kernel
+        assertEquals(3, FusedKernel.compileKernels(List.of(EffectStep.of("grayscale"), EffectStep.of("invert"),
+                EffectStep.of("sepia"))).length);
+    }
+
+    private static void assertSamePixels(List<EffectStep> chain) {
+        PixelEngine.Kernel fused = FusedKernel.compile(chain);
+        PixelEngine.Kernel[] steps = chain.stream().map(EffectStep::kernel).toArray(PixelEngine.Kernel[]::new);
+        int[] src = new int[BLOCK];
+        int[] expected = new int[BLOCK];
+        int[] actual = new int[BLOCK];
+        for (int start = 0; start < COLORS; start += BLOCK) {
+            for (int i = 0; i < BLOCK; i++) {
+                src[i] = 0xff000000 | (start + i);
+            }
+            Arrays.fill(expected, 0);
+            Arrays.fill(actual, 0);
+            int[] in = src;
+            for (PixelEngine.Kernel step : steps) {
+                step.apply(in, expected, MARGIN, BLOCK - MARGIN);
+                in = expected;
+            }
+            fused.apply(src, actual, MARGIN, BLOCK - MARGIN);
+            for (int i = 0; i < BLOCK; i++) {
+                if (expected[i] != actual[i]) {
+                    assertEquals(Integer.toHexString(expected[i]), Integer.toHexString(actual[i]),
+                            chain + " dla koloru " + Integer.toHexString(src[i]));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,60 @@
+// Nasycenie liczone na liczbach całkowitych porównujemy z pierwotną wersją przez Color.RGBtoHSB/HSBtoRGB: wynik
+// może się różnić najwyżej o 1 na składową (zaokrąglenia float w HSB), a kanał alfa zawsze jest nieprzezroczysty.
+
+package imaging.effects;
+
+import org.junit.jupiter.api.Test;
+
+import java.awt.*;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SaturationTest {
+    private static final int SAMPLES = 4_000;
+
+    @Test
+    void matchesHsbRoundTripWithinOneLevel() {
+        Random random = new Random(42);
+        int[] colors = new int[SAMPLES];
+        for (int i = 0; i < colors.length; i++) {
+            colors[i] = random.nextInt();
+        }
+        // Kolory skrajne: szarości, czyste składowe i kolory o jednej składowej zerowej
+        int[] edges = {0x000000, 0xffffff, 0x808080, 0xff0000, 0x00ff00, 0x0000ff, 0x010000, 0xfffffe, 0x00fffe, 0x7f0080};
+        System.arraycopy(edges, 0, colors, 0, edges.length);
+
+        for (int slider = 0; slider <= 200; slider++) {
+            float parameter = slider / 100f;
+            int saturationQ16 = Math.round(parameter * 65536); // Jak w Saturation.kernel
+            for (int color : colors) {
+                int actual = Saturation.saturate(color, saturationQ16);
+                int expected = hsbRoundTrip(color, parameter);
+                assertEquals(0xff, actual >>> 24, "alfa dla " + describe(color, parameter));
+                for (int shift = 0; shift <= 16; shift += 8) {
+                    int difference = Math.abs(((actual >> shift) & 0xff) - ((expected >> shift) & 0xff));
+                    assertTrue(difference <= 1, "różnica " + difference + " dla " + describe(color, parameter));
+                }
+            }
+        }
+    }
+
+    @Test
+    void neutralParameterKeepsColors() {
+        Random random = new Random(7);
+        for (int i = 0; i < SAMPLES; i++) {
+            int color = random.nextInt();
+            assertEquals(0xff000000 | color, Saturation.saturate(color, 1 << 16), describe(color, 1));
+        }
+    }
+
+    private static int hsbRoundTrip(int pixel, float saturation) {
+        float[] hsb = Color.RGBtoHSB((pixel >> 16) & 0xff, (pixel >> 8) & 0xff, pixel & 0xff, null);
+        return Color.HSBtoRGB(hsb[0], Math.min(1.0f, hsb[1] * saturation), hsb[2]);
+    }
+
+    private static String describe(int color, float parameter) {
+        return String.format("koloru %06x i parametru %.2f", color & 0xffffff, parameter);
+    }
+}
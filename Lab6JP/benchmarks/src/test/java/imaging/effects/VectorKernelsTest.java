@@ -0,0 +1,73 @@
+// Kernele wektorowe muszą dawać dokładnie te same piksele co skalarne - inaczej obraz zależałby od tego, czy JVM
+// uruchomiono z modułem jdk.incubator.vector. Sprawdzamy wszystkie 2^24 kolorów (z różnymi wartościami alfa), a zakres
+// zaczyna się i kończy w środku wektora, żeby objąć też skalarne końcówki.
+
+package imaging.effects;
+
+import imaging.PixelEngine;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class VectorKernelsTest {
+    private static final int COLORS = 1 << 24;
+    private static final int BLOCK = 1 << 20;
+    private static final int MARGIN = 3; // Pierwsze i ostatnie piksele bloku zostają poza zakresem
+
+    @BeforeAll
+    static void requireVectorKernels() {
+        assertTrue(Simd.isAvailable(), "Testy trzeba uruchomić z --add-modules jdk.incubator.vector i src-vector");
+    }
+
+    @Test
+    void invert() {
+        assertSamePixels("invert", Invert::apply, Simd.vector()::invert);
+    }
+
+    @Test
+    void blue() {
+        assertSamePixels("blue", BlueFilter::apply, Simd.vector()::blue);
+    }
+
+    @Test
+    void grayscale() {
+        assertSamePixels("grayscale", Grayscale::apply, Simd.vector()::grayscale);
+    }
+
+    @Test
+    void sepia() {
+        assertSamePixels("sepia", Sepia::apply, Simd.vector()::sepia);
+    }
+
+    @Test
+    void saturation() {
+        // Granice suwaka, brak zmiany i wartości pośrednie (także takie, które nie są dokładne w 16.16)
+        for (float parameter : new float[]{0, 0.33f, 0.5f, 1, 1.37f, 1.5f, 2}) {
+            int saturationQ16 = Math.round(parameter * 65536);
+            assertSamePixels("saturation " + parameter, Saturation.scalarKernel(saturationQ16),
+                    Simd.vector().saturation(saturationQ16));
+        }
+    }
+
+    private static void assertSamePixels(String effect, PixelEngine.Kernel scalar, PixelEngine.Kernel vector) {
+        int[] src = new int[BLOCK];
+        int[] expected = new int[BLOCK];
+        int[] actual = new int[BLOCK];
+        for (int start = 0; start < COLORS; start += BLOCK) {
+            for (int i = 0; i < BLOCK; i++) {
+                int rgb = start + i;
+                src[i] = (rgb * 31 & 0xff) << 24 | rgb; // Alfa nie może wpływać na wynik
+            }
+            scalar.apply(src, expected, MARGIN, BLOCK - MARGIN);
+            vector.apply(src, actual, MARGIN, BLOCK - MARGIN);
+            for (int i = 0; i < BLOCK; i++) {
+                if (expected[i] != actual[i]) {
+                    assertEquals(Integer.toHexString(expected[i]), Integer.toHexString(actual[i]),
+                            effect + " dla koloru " + Integer.toHexString(src[i]));
+                }
+            }
+        }
+    }
+}
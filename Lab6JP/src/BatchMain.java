@@ -0,0 +1,102 @@
+// Przetwarzanie wsadowe bez interfejsu graficznego (np. na serwerze bez ekranu). Wszystkie obrazy z katalogu
+// wejściowego przechodzą przez ten sam łańcuch efektów i są zapisywane pod tą samą nazwą w katalogu wyjściowym.
+//
+// Użycie: java BatchMain [--io] <katalog wejściowy> <efekty> <katalog wyjściowy>
+//   efekty - lista oddzielona przecinkami, np. grayscale,saturation=1.5,blur=4,sharpen (efekty z EffectRegistry;
+//            efekt z parametrem bez podanej wartości dostaje wartość domyślną)
+//   --io   - pliki są czytane i zapisywane na osobnych wątkach I/O (wirtualnych, jeśli JVM je ma), a przetwarzanie
+//            pikseli odbywa się na puli wielkości liczby rdzeni; przydatne dla wolnych dysków sieciowych
+
+import imaging.BatchPipeline;
+import imaging.EffectRegistry;
+import imaging.EffectStep;
+import imaging.PixelEffect;
+import imaging.Workers;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+public class BatchMain {
+    // Skompresowane bajty plików w toku w trybie --io (wczytane, a jeszcze niezapisane) - jak RenderCache, 1/8 sterty
+    private static final long MAX_BYTES_IN_FLIGHT = Runtime.getRuntime().maxMemory() / 8;
+    private static final int QUEUE_CAPACITY = 2; // Zdekodowane obrazy czekające między etapami (na każdą z kolejek)
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        System.setProperty("java.awt.headless", "true");
+        boolean separateIo = args.length > 0 && "--io".equals(args[0]);
+        if (separateIo) {
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        if (args.length != 3) {
+            System.err.println("Użycie: java BatchMain [--io] <katalog wejściowy> <efekty> <katalog wyjściowy>");
+            System.err.println("  efekty: lista oddzielona przecinkami, np. grayscale,sepia,saturation=1.5");
+            System.err.println("  dostępne efekty: " + EffectRegistry.effects().stream()
+                    .map(BatchMain::describe).collect(Collectors.joining(", ")));
+            System.exit(2);
+        }
+        Path inputDir = Paths.get(args[0]);
+        Path outputDir = Paths.get(args[2]);
+        List<EffectStep> steps;
+        try {
+            steps = parseEffects(args[1]);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.exit(2);
+            return;
+        }
+
+        List<Path> inputs;
+        try (Stream<Path> files = Files.list(inputDir)) {
+            inputs = files.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+        }
+        Files.createDirectories(outputDir);
+
+        // Dekodowanie i kodowanie to w dużej części operacje na plikach, przetwarzanie pikseli zajmuje wszystkie rdzenie.
+        // Pojemność kolejek ogranicza liczbę obrazów w pamięci - nie zależy od liczby rdzeni, bo każdy obraz w kolejce to
+        // pełna bitmapa, a wątki i tak mają co robić, gdy czeka choć jeden obraz.
+        int cores = Runtime.getRuntime().availableProcessors();
+        int ioThreads = Math.max(1, cores / 2);
+        BatchPipeline pipeline = new BatchPipeline(steps, ioThreads, cores, ioThreads, QUEUE_CAPACITY, System.out);
+        int failed;
+        if (separateIo) {
+            System.out.println(Workers.hasVirtualThreads() ? "I/O na wątkach wirtualnych" : "I/O na puli wątków systemowych");
+            failed = pipeline.runWithIoThreads(inputs, outputDir, MAX_BYTES_IN_FLIGHT);
+        } else {
+            failed = pipeline.run(inputs, outputDir);
+        }
+        System.out.println("Przetworzono " + (inputs.size() - failed) + " z " + inputs.size() + " plików");
+        if (failed > 0) {
+            System.exit(1);
+        }
+    }
+
+    // Metoda zamieniająca opis łańcucha (np. "grayscale,saturation=1.5") na listę kroków
+    private static List<EffectStep> parseEffects(String chain) {
+        List<EffectStep> steps = new ArrayList<>();
+        for (String part : chain.split(",")) {
+            String[] nameAndValue = part.trim().split("=", 2);
+            if (nameAndValue.length == 1) {
+                steps.add(EffectStep.of(nameAndValue[0]));
+                continue;
+            }
+            try {
+                steps.add(EffectStep.of(nameAndValue[0], Float.parseFloat(nameAndValue[1])));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Niepoprawna wartość parametru: " + part.trim());
+            }
+        }
+        return steps;
+    }
+
+    private static String describe(PixelEffect effect) {
+        return effect.getParameterRange() == null ? effect.getName()
+                : effect.getName() + "=" + effect.getParameterRange().getMin() + ".." + effect.getParameterRange().getMax();
+    }
+}
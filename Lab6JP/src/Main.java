@@ -6,19 +6,64 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.awt.geom.Rectangle2D;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import javax.imageio.ImageIO;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+
+import imaging.CurvesEditor;
+import imaging.EffectPipeline;
+import imaging.EffectStep;
+import imaging.Histogram;
+import imaging.HistogramPanel;
+import imaging.HistogramTracker;
+import imaging.ImageLoader;
+import imaging.ImageSource;
+import imaging.ImageViewer;
+import imaging.PixelEngine;
+import imaging.RenderCache;
+import imaging.RenderScheduler;
+import imaging.TileLockedImage;
+import imaging.effects.AutoLevels;
+import imaging.effects.Curves;
 
 public class Main extends JFrame {
-    private BufferedImage image; // Zmienna do przechowywania obrazu
-    private JLabel imageLabel; // Etykieta do wyświetlania obrazu w GUI
+    private EffectPipeline pipeline; // Potok efektów: niezmieniany obraz źródłowy i lista zastosowanych kroków
+    private ImageViewer imageView; // Widok obrazu w GUI (dopasowanie do okna, powiększanie, przesuwanie)
+    private JProgressBar loadProgressBar; // Pasek postępu wczytywania obrazu
+    private ImageLoader loader; // Trwające wczytywanie obrazu (można je przerwać)
     private JPanel controlPanel; // Panel do umieszczania przycisków i suwaków kontrolujących efekty
     private JButton loadButton; // Przycisk do ładowania obrazu
     private JButton grayscaleButton; // Przycisk do zastosowania efektu szarości
     private JButton saturationButton; // Przycisk do regulacji nasycenia
     private JButton colorFilterButton; // Przycisk do nałożenia filtra kolorystycznego
+    private JButton undoButton; // Przycisk do cofnięcia ostatniego efektu
+    private JCheckBox inPlaceBox; // Tryb edycji w miejscu dla efektów Czarno-białe i Filtr kolorystyczny
+    private SwingWorker<BufferedImage, Rectangle> inPlaceWorker; // Trwająca edycja w miejscu
+    private JButton autoLevelsButton; // Przycisk automatycznych poziomów (każda składowa osobno)
+    private JButton autoContrastButton; // Przycisk automatycznego kontrastu (wszystkie składowe razem)
+    private JButton curvesButton; // Przycisk otwierający okno krzywych tonalnych
+    private JDialog curvesDialog; // Okno krzywych (tworzone przy pierwszym otwarciu)
+    private CurvesEditor curvesEditor; // Edytor krzywej w oknie krzywych
+    private HistogramPanel histogramPanel; // Histogram wyświetlanego obrazu
+    private final HistogramTracker histograms = new HistogramTracker(); // Histogramy wyników zbierane z gotowych pasów
+    private Histogram resultHistogram; // Histogram ostatniego pełnego wyniku potoku (podstawa auto-poziomów)
     private JSlider saturationSlider; // Suwak do regulacji nasycenia
+    // Planista renderowania - w tle liczy się co najwyżej jedno zadanie, a z oczekujących zostaje tylko najnowsze.
+    // Gotowe pasy wyniku pokazujemy od razu, nie czekając na cały obraz.
+    private final RenderScheduler scheduler = new RenderScheduler(this::showRendered,
+            (partial, dirty) -> imageView.updateImage(partial, dirty), this::showError);
+    // Podgląd na żywo w trakcie przeciągania suwaka - też w tle, żeby wątek GUI tylko odbierał zdarzenia myszy
+    private Rectangle previewRegion; // Fragment obrazu, dla którego liczony jest najnowszy podgląd
+    private final RenderScheduler previewScheduler = new RenderScheduler(this::showPreviewResult, this::showError);
+    // Szczegóły w pełnej rozdzielczości dla powiększonego fragmentu obrazu wczytanego z podpróbkowaniem
+    private Rectangle2D detailRegion; // Fragment obrazu, na którym rysujemy szczegóły
+    private final RenderScheduler detailScheduler = new RenderScheduler(
+            detail -> imageView.showOverlay(detail, detailRegion), e -> JOptionPane.showMessageDialog(this,
+            "Nie udało się wczytać szczegółów obrazu z pliku", "Błąd", JOptionPane.ERROR_MESSAGE));
 
     public Main() { // Konstruktor klasy
         setTitle("Aplikacja do przetwarzania obrazów");
@@ -27,8 +72,9 @@ public class Main extends JFrame {
         setLocationRelativeTo(null);                      // Ustawienie okna na środku ekranu
 
         // Tworzymy panel do wyświetlania obrazu
-        imageLabel = new JLabel(); // Etykieta, która będzie trzymała obraz
-        add(imageLabel, BorderLayout.CENTER); // Dodajemy do głównego okna
+        imageView = new ImageViewer();
+        add(imageView, BorderLayout.CENTER); // Dodajemy do głównego okna
+        imageView.addViewListener(this::requestDetail); // Po powiększeniu lub przesunięciu doczytujemy szczegóły
 
         // Tworzymy panel do przycisków
         controlPanel = new JPanel(); // Inicjalizujemy panel kontrolny
@@ -45,6 +91,11 @@ public class Main extends JFrame {
         });
         controlPanel.add(loadButton); // Dodajemy przycisk do panelu kontrolnego
 
+        // Pasek postępu wczytywania obrazu
+        loadProgressBar = new JProgressBar(0, 100);
+        loadProgressBar.setStringPainted(true);
+        controlPanel.add(loadProgressBar);
+
         // Tworzymy przycisk do konwersji na odcienie szarości
         grayscaleButton = new JButton("Czarno-białe"); // Tworzymy przycisk
         grayscaleButton.addActionListener(new ActionListener() {
@@ -65,6 +116,17 @@ public class Main extends JFrame {
         });
         controlPanel.add(colorFilterButton);
 
+        // Tryb edycji w miejscu: efekty zmieniają piksele obrazu zamiast dodawać krok do potoku (bez kopii, bez cofania)
+        inPlaceBox = new JCheckBox("Edycja w miejscu");
+        inPlaceBox.setToolTipText("Czarno-białe i filtr kolorystyczny zmieniają obraz bez kopii - nie można ich cofnąć");
+        inPlaceBox.setOpaque(false);
+        controlPanel.add(inPlaceBox);
+
+        // Tworzymy przycisk do cofania ostatniego efektu
+        undoButton = new JButton("Cofnij"); // Tworzymy przycisk
+        undoButton.addActionListener(e -> undoEffect());
+        controlPanel.add(undoButton);
+
         // Tworzymy przycisk do regulacji nasycenia
         saturationButton = new JButton("Regulacja nasycenia"); // Tworzymy przycisk do regulacji nasycenia
         saturationSlider = new JSlider(0, 200, 100); // Tworzymy suwak o zakresie od 0 do 200, z wartością początkową 100
@@ -76,99 +138,319 @@ public class Main extends JFrame {
         controlPanel.add(saturationButton);
         controlPanel.add(saturationSlider);
 
+        // Tworzymy przyciski automatycznej korekty poziomów i kontrastu
+        autoLevelsButton = new JButton("Auto-poziomy");
+        autoLevelsButton.addActionListener(e -> applyAutoLevels(true));
+        controlPanel.add(autoLevelsButton);
+        autoContrastButton = new JButton("Auto-kontrast");
+        autoContrastButton.addActionListener(e -> applyAutoLevels(false));
+        controlPanel.add(autoContrastButton);
+
+        // Tworzymy przycisk do edycji krzywych tonalnych
+        curvesButton = new JButton("Krzywe...");
+        curvesButton.addActionListener(e -> showCurves());
+        controlPanel.add(curvesButton);
+
+        // Histogram wyświetlanego obrazu (w trakcie przeciągania suwaka - histogram podglądu)
+        histogramPanel = new HistogramPanel();
+        controlPanel.add(histogramPanel);
+
         add(controlPanel, BorderLayout.SOUTH);
     }
 
     // Metoda do załadowania obrazu
     private void loadImage() {
         JFileChooser fileChooser = new JFileChooser();
-        int returnValue = fileChooser.showOpenDialog(this); // Wyświetlamy okno dialogowe do wyboru pliku
+        int returnValue = fileChooser.showOpenDialog(this);
         if (returnValue == JFileChooser.APPROVE_OPTION) {
             File file = fileChooser.getSelectedFile();
-            try {
-                image = ImageIO.read(file); // Ładujemy obraz do zmiennej image
-                ImageIcon imageIcon = new ImageIcon(image); // Tworzymy obiekt ImageIcon z obrazu
-                imageLabel.setIcon(imageIcon); // Ustawiamy obraz na etykiecie
-                repaint(); // Odświeżamy widok
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(this, "Źle załadowany plik", "Błąd", JOptionPane.ERROR_MESSAGE); // Jeśli wystąpił błąd, wyświetlamy komunikat
+            if (loader != null) {
+                loader.cancel(true); // Przerywamy poprzednie, niedokończone wczytywanie
             }
+            // Obraz dekodowany jest w tle; częściowo wczytany obraz pokazujemy od razu, a postęp na pasku
+            ImageSource source = new ImageSource(file);
+            loader = new ImageLoader(source, loadProgressBar, partial -> {
+                showImage(partial);
+            }, loaded -> {
+                scheduler.cancel(); // Wyniki, podglądy i szczegóły poprzedniego obrazu nie są już potrzebne
+                previewScheduler.cancel();
+                detailScheduler.cancel();
+                if (inPlaceWorker != null) {
+                    inPlaceWorker.cancel(true); // Kafelki edytowane w miejscu należą do poprzedniego obrazu
+                    inPlaceWorker = null;
+                }
+                if (pipeline != null) {
+                    pipeline.close(); // Zwalniamy kafelki pełnej rozdzielczości poprzedniego obrazu
+                }
+                installPipeline(loaded, source); // Wczytany obraz staje się źródłem potoku efektów
+                showResult(); // Wyświetlamy obraz
+            }, e -> JOptionPane.showMessageDialog(this, "Źle załadowany plik", "Błąd", JOptionPane.ERROR_MESSAGE));
+            loader.execute();
         }
     }
 
+    // Metoda ustawiająca nowe źródło potoku efektów (file - plik do doczytywania szczegółów, może być null)
+    private void installPipeline(BufferedImage image, ImageSource file) {
+        pipeline = new EffectPipeline(image, file);
+        pipeline.setRecycling(true); // Wyniki wyświetlamy po kolei, więc bufory starych wyników można używać ponownie
+        pipeline.setCache(RenderCache.shared()); // Wyniki łańcuchów liczonych już wcześniej dla tego obrazu wracają od razu
+    }
+
     // Metoda do konwersji obrazu na odcienie szarości
     private void applyGrayscale() {
-        if (image != null) { // Sprawdzamy, czy obraz jest załadowany
-            // Tworzymy nowy obraz, który będzie przechowywał wynik przetwarzania
-            BufferedImage grayscaleImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
-
-            // Iterujemy po wszystkich pikselach obrazu
-            for (int y = 0; y < image.getHeight(); y++) {
-                for (int x = 0; x < image.getWidth(); x++) {
-                    int pixel = image.getRGB(x, y);
-                    int r = (pixel >> 16) & 0xff;
-                    int g = (pixel >> 8) & 0xff;
-                    int b = pixel & 0xff;
-
-                    // Obliczamy wartość szarości
-                    int gray = (r + g + b) / 3;
-
-                    // Tworzymy nowy piksel w odcieniach szarości
-                    int newPixel = (gray << 16) | (gray << 8) | gray;
-
-                    // Ustawiamy przetworzony piksel na nowym obrazie
-                    grayscaleImage.setRGB(x, y, newPixel);
-                }
-            }
-
-            // Ustawiamy nowy obraz w etykiecie
-            imageLabel.setIcon(new ImageIcon(grayscaleImage));
-            image = grayscaleImage; // Zastępujemy oryginalny obraz nowym obrazem w odcieniach szarości
-            repaint(); // Odświeżamy widok
+        if (pipeline != null && inPlaceBox.isSelected()) {
+            applyInPlace(EffectStep.of("grayscale"));
+        } else if (pipeline != null) { // Sprawdzamy, czy obraz jest załadowany
+            pipeline.add(EffectStep.of("grayscale")); // Dodajemy krok do potoku - obraz źródłowy pozostaje nietknięty
+            showResult();
         }
     }
 
     // Metoda do dostosowania nasycenia obrazu
     private void adjustSaturation() {
-        if (image != null) { // Sprawdzamy, czy obraz jest załadowany
+        if (pipeline != null) { // Sprawdzamy, czy obraz jest załadowany
             float saturation = saturationSlider.getValue() / 100f; // Pobieramy wartość z suwaka i przekształcamy na zakres 0-2
-            for (int y = 0; y < image.getHeight(); y++) {
-                for (int x = 0; x < image.getWidth(); x++) {
-                    int pixel = image.getRGB(x, y);
-                    int r = (pixel >> 16) & 0xff;
-                    int g = (pixel >> 8) & 0xff;
-                    int b = pixel & 0xff;
-
-                    float[] hsb = Color.RGBtoHSB(r, g, b, null); // Konwertujemy RGB na HSB
-                    hsb[1] = Math.min(1.0f, hsb[1] * saturation); // Zmieniamy nasycenie
-                    Color newColor = Color.getHSBColor(hsb[0], hsb[1], hsb[2]); // Tworzymy nowy kolor z przekształconymi wartościami HSB
-
-                    image.setRGB(x, y, newColor.getRGB()); // Ustawiamy nowy piksel
-                }
+            // Kolejne ruchy suwaka zastępują ostatni krok nasycenia, więc zmiany się nie kumulują
+            pipeline.replaceOrAdd(EffectStep.saturation(saturation));
+            if (saturationSlider.getValueIsAdjusting()) {
+                showPreview(); // W trakcie przeciągania suwaka liczymy tylko widoczny fragment obrazu
+            } else {
+                showResult(); // Pełną rozdzielczość liczymy dopiero po puszczeniu suwaka
             }
-            imageLabel.setIcon(new ImageIcon(image)); // Ustawiamy zmodyfikowany obraz na etykiecie
-            repaint(); // Odświeżamy widok
         }
     }
 
     // Metoda do zastosowania filtra kolorystycznego
     private void applyColorFilter() {
-        if (image != null) { // Sprawdzamy, czy obraz jest załadowany
-            for (int y = 0; y < image.getHeight(); y++) { // Iterujemy po wszystkich wierszach obrazu
-                for (int x = 0; x < image.getWidth(); x++) { // Iterujemy po wszystkich kolumnach obrazu
-                    int pixel = image.getRGB(x, y); // Pobieramy wartość piksela
-                    int b = pixel & 0xff; // Pobieramy składnik niebieski
-
-                    // Filtr niebieski - zostawiamy tylko komponent niebieski
-                    int newPixel = (0) | b; // Ustawiamy czerwony i zielony na 0, a niebieski na oryginalny
-                    image.setRGB(x, y, newPixel);
+        if (pipeline != null && inPlaceBox.isSelected()) {
+            applyInPlace(EffectStep.of("blue")); // Ten sam filtr, ale zmieniający piksele obrazu
+        } else if (pipeline != null) { // Sprawdzamy, czy obraz jest załadowany
+            // Filtr niebieski - zostawiamy tylko komponent niebieski
+            pipeline.add(EffectStep.of("blue"));
+            showResult();
+        }
+    }
+
+    // Metoda nakładająca efekt w trybie edycji w miejscu - bez kopii rastra, jak pierwotny filtr. Obraz jest podzielony
+    // na kafelki z własnymi blokadami (TileLockedImage): wątki robocze edytują rozłączne kafelki równolegle, a widok
+    // w tym czasie czyta każdy gotowy kafelek optymistycznie, więc nigdy nie pokazuje go w połowie zmiany. Kroki potoku
+    // (jeśli są) najpierw utrwalamy w jednej kopii wyniku; potem edytowany obraz staje się źródłem nowego, pustego potoku.
+    private void applyInPlace(EffectStep step) {
+        if (inPlaceWorker != null) {
+            JOptionPane.showMessageDialog(this, "Poprzednia edycja w miejscu jeszcze trwa", "Informacja",
+                    JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        scheduler.cancel();
+        previewScheduler.cancel();
+        detailScheduler.cancel();
+        EffectPipeline current = pipeline;
+        current.close(); // Renderowanie, które jeszcze trwa, nie odda już do RenderCache wyniku ze zmienianego źródła
+        pipeline = null; // Do końca edycji pozostałe efekty nie mają na czym pracować
+        inPlaceWorker = new SwingWorker<>() {
+            private volatile TileLockedImage target;
+
+            @Override
+            protected BufferedImage doInBackground() {
+                BufferedImage base = current.size() == 0 ? current.getSource()
+                        : PixelEngine.apply(current.render(), PixelEngine.identity());
+                target = new TileLockedImage(base);
+                target.applyInPlace(step.kernel(), this::publish);
+                return target.getImage();
+            }
+
+            @Override
+            protected void process(List<Rectangle> tiles) {
+                if (isCancelled()) {
+                    return;
                 }
+                for (Rectangle tile : tiles) {
+                    imageView.updateRegion(target.snapshot(tile), tile.getLocation());
+                }
+            }
+
+            @Override
+            protected void done() {
+                if (isCancelled()) {
+                    return; // Wczytano nowy obraz
+                }
+                inPlaceWorker = null;
+                try {
+                    BufferedImage edited = get();
+                    histograms.forget(edited); // Ten sam obiekt obrazu ma już inne piksele
+                    installPipeline(edited, null); // Plik nie odpowiada już obrazowi - szczegółów z niego nie doczytujemy
+                } catch (InterruptedException | ExecutionException e) {
+                    showError(e);
+                    if (target != null) {
+                        histograms.forget(target.getImage());
+                        installPipeline(target.getImage(), null); // Część kafelków mogła już zostać zmieniona
+                    } else {
+                        installPipeline(current.getSource(), current.getImageSource()); // Źródło jest nietknięte
+                        current.getSteps().forEach(pipeline::add);
+                    }
+                }
+                showResult();
+            }
+        };
+        inPlaceWorker.execute();
+    }
+
+    // Metoda do automatycznej korekty: punkty czerni i bieli bierzemy z histogramu wyświetlanego wyniku, a tablica LUT
+    // zostaje w kroku potoku (perChannel - auto-poziomy, w przeciwnym razie auto-kontrast)
+    private void applyAutoLevels(boolean perChannel) {
+        if (pipeline != null && resultHistogram != null) {
+            pipeline.add(EffectStep.of(perChannel ? AutoLevels.levels(resultHistogram) : AutoLevels.contrast(resultHistogram)));
+            showResult();
+        }
+    }
+
+    // Metoda otwierająca okno krzywych. Jeśli ostatnim krokiem potoku są już krzywe, edytujemy je dalej; w przeciwnym
+    // razie zaczynamy od krzywej, która niczego nie zmienia, a krok dodajemy przy pierwszej zmianie.
+    private void showCurves() {
+        if (pipeline == null) {
+            return;
+        }
+        if (curvesDialog == null) {
+            curvesEditor = new CurvesEditor();
+            curvesEditor.addChangeListener(e -> adjustCurves());
+            JButton resetButton = new JButton("Resetuj");
+            resetButton.addActionListener(e -> curvesEditor.reset());
+            curvesDialog = new JDialog(this, "Krzywe", false); // Okno niemodalne - obraz widać i można go przewijać
+            curvesDialog.add(curvesEditor, BorderLayout.CENTER);
+            curvesDialog.add(resetButton, BorderLayout.SOUTH);
+            curvesDialog.pack();
+            curvesDialog.setLocationRelativeTo(this);
+        }
+        List<EffectStep> steps = pipeline.getSteps();
+        EffectStep last = steps.isEmpty() ? null : steps.get(steps.size() - 1);
+        curvesEditor.setCurve(last != null && last.getDefinition() instanceof Curves
+                ? (Curves) last.getDefinition() : Curves.identity());
+        curvesEditor.setHistogram(resultHistogram);
+        curvesDialog.setVisible(true);
+    }
+
+    // Metoda nakładająca krzywą z edytora - jak przy suwaku nasycenia: w trakcie przeciągania punktu tylko podgląd,
+    // po puszczeniu przycisku myszy pełna rozdzielczość. Krzywa to jedna tablica LUT, więc podgląd jest natychmiastowy.
+    private void adjustCurves() {
+        if (pipeline != null) {
+            pipeline.replaceOrAdd(EffectStep.of(curvesEditor.getCurve()));
+            if (curvesEditor.isAdjusting()) {
+                showPreview();
+            } else {
+                showResult();
             }
-            imageLabel.setIcon(new ImageIcon(image)); // Ustawiamy zmodyfikowany obraz na etykiecie
-            repaint(); // Odświeżamy widok
         }
     }
 
+    // Metoda do cofnięcia ostatniego efektu - poprzedni wynik jest zapamiętany w potoku, więc nie czytamy pliku ponownie
+    private void undoEffect() {
+        if (pipeline != null && pipeline.removeLast()) {
+            showResult();
+        }
+    }
+
+    // Metoda wyświetlająca wynik potoku (przeliczane są tylko kroki, których wynik nie jest zapamiętany)
+    private void showResult() {
+        previewScheduler.cancel(); // Spóźniony podgląd nie może przykryć pełnego wyniku
+        EffectPipeline current = pipeline;
+        // Liczymy w tle; nowsze zgłoszenie przerywa starsze. Histogram wyniku zbieramy z pasów, gdy tylko są gotowe,
+        // więc nie wymaga osobnego przejścia po obrazie.
+        scheduler.submit((cancelled, progress, bands) -> {
+            BufferedImage result = current.render(cancelled, progress, histograms.track(bands));
+            if (result != null) {
+                histograms.histogramOf(result); // Sumujemy liczniki jeszcze w tle
+            }
+            return result;
+        });
+    }
+
+    // Metoda wyświetlająca gotowy wynik potoku razem z jego histogramem
+    private void showRendered(BufferedImage result) {
+        showImage(result);
+        resultHistogram = histograms.histogramOf(result);
+        histogramPanel.setHistogram(resultHistogram);
+    }
+
+    // Metoda wyświetlająca gotowy obraz
+    private void showImage(BufferedImage result) {
+        imageView.setImage(result); // Widok trzyma kopię w formacie ekranu
+        requestDetail();
+    }
+
+    // Metoda wyświetlająca podgląd na żywo: efekty liczone są tylko na fragmencie obrazu widocznym w oknie
+    private void showPreview() {
+        scheduler.cancel(); // Wynik pełnej rozdzielczości z poprzedniego puszczenia suwaka jest już nieaktualny
+        detailScheduler.cancel();
+        Rectangle region = imageView.getVisibleRegion();
+        if (region.isEmpty()) {
+            previewScheduler.cancel();
+            return;
+        }
+        // Podgląd ma tyle pikseli, ile zajmuje na ekranie widoczny fragment (nie więcej niż sam fragment)
+        int width = Math.max(1, (int) Math.ceil(region.width * Math.min(1, imageView.getScale())));
+        int height = Math.max(1, (int) Math.ceil(region.height * Math.min(1, imageView.getScale())));
+        previewRegion = region;
+        EffectPipeline current = pipeline;
+        // Przy szybkim przeciąganiu liczymy tylko najnowszy podgląd; pośrednie zgłoszenia planista pomija
+        previewScheduler.submit((cancelled, progress, bands) -> {
+            BufferedImage preview = current.renderPreview(region, width, height);
+            histograms.histogramOf(preview); // Podgląd ma rozmiar widoku, więc zliczamy go od razu, jeszcze w tle
+            return preview;
+        });
+    }
+
+    // Metoda wyświetlająca gotowy podgląd na żywo razem z jego histogramem
+    private void showPreviewResult(BufferedImage preview) {
+        imageView.showOverlay(preview, previewRegion);
+        histogramPanel.setHistogram(histograms.histogramOf(preview));
+    }
+
+    // Metoda zgłaszająca błąd przetwarzania obrazu w tle
+    private void showError(Exception e) {
+        JOptionPane.showMessageDialog(this, "Błąd przetwarzania obrazu", "Błąd", JOptionPane.ERROR_MESSAGE);
+    }
+
+    // Metoda doczytująca szczegóły: jeśli obraz wczytano z podpróbkowaniem, a widok jest powiększony ponad rozdzielczość
+    // wczytanego obrazu, widoczny fragment liczymy w tle w pełnej rozdzielczości pliku (ze wszystkimi efektami)
+    private void requestDetail() {
+        detailScheduler.cancel();
+        if (pipeline == null || pipeline.getImageSource() == null || imageView.getScale() <= 1
+                || saturationSlider.getValueIsAdjusting() || (curvesEditor != null && curvesEditor.isAdjusting())) {
+            return;
+        }
+        BufferedImage source = pipeline.getSource();
+        if (!new Dimension(source.getWidth(), source.getHeight()).equals(imageView.getImageSize())) {
+            return; // Widok pokazuje jeszcze częściowo wczytany nowy obraz
+        }
+        Dimension full;
+        try {
+            full = pipeline.getImageSource().getSize(); // Wymiary są już zapamiętane przez ImageLoader
+        } catch (IOException e) {
+            return;
+        }
+        if (full.width == source.getWidth()) {
+            return; // Obraz wczytano w pełnej rozdzielczości
+        }
+        Rectangle visible = imageView.getVisibleRegion();
+        double factor = (double) full.width / source.getWidth();
+        Rectangle fileRegion = new Rectangle((int) (visible.x * factor), (int) (visible.y * factor),
+                (int) Math.ceil(visible.width * factor), (int) Math.ceil(visible.height * factor))
+                .intersection(new Rectangle(full));
+        if (fileRegion.isEmpty()) {
+            return;
+        }
+        detailRegion = new Rectangle2D.Double(fileRegion.x / factor, fileRegion.y / factor,
+                fileRegion.width / factor, fileRegion.height / factor);
+        EffectPipeline current = pipeline;
+        detailScheduler.submit((cancelled, progress, bands) -> {
+            try {
+                return current.renderRegion(fileRegion);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
     // Metoda główna uruchamiająca aplikację
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> {
@@ -7,16 +7,35 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import javax.imageio.ImageIO;
+
+import imaging.EffectPipeline;
+import imaging.EffectStep;
+import imaging.ImageLoader;
+import imaging.ImageSource;
+import imaging.ImageViewer;
+import imaging.RenderCache;
+import imaging.RenderScheduler;
 
 public class PodZad1 extends JFrame {
-    private BufferedImage image; // Zmienna do przechowywania obrazu
-    private JLabel imageLabel; // Etykieta do wyświetlania obrazu w GUI
+    private EffectPipeline pipeline; // Potok efektów: niezmieniany obraz źródłowy i lista zastosowanych kroków
+    private ImageViewer imageView; // Komponent wyświetlający obraz
+    private JProgressBar loadProgressBar; // Pasek postępu wczytywania obrazu
+    private ImageLoader loader; // Trwające wczytywanie obrazu (można je przerwać)
     private JPanel controlPanel; // Panel do umieszczania przycisków i suwaków kontrolujących efekty
     private JButton loadButton; // Przycisk do ładowania obrazu
     private JButton grayscaleButton; // Przycisk do zastosowania efektu szarości
     private JButton colorFilterButton; // Przycisk do nałożenia filtra kolorystycznego
+    private JButton undoButton; // Przycisk do cofnięcia ostatniego efektu
     private JSlider saturationSlider; // Suwak do regulacji nasycenia
+    // Planista renderowania - w tle liczy się co najwyżej jedno zadanie, a z oczekujących zostaje tylko najnowsze
+    private final RenderScheduler scheduler = new RenderScheduler(this::showImage,
+            (partial, dirty) -> imageView.updateImage(partial, dirty), e ->
+            JOptionPane.showMessageDialog(this, "Błąd przetwarzania obrazu", "Błąd", JOptionPane.ERROR_MESSAGE));
+    // Podgląd na żywo w trakcie przeciągania suwaka - też w tle, żeby wątek GUI tylko odbierał zdarzenia myszy
+    private Rectangle previewRegion; // Fragment obrazu, dla którego liczony jest najnowszy podgląd
+    private final RenderScheduler previewScheduler = new RenderScheduler(
+            preview -> imageView.showOverlay(preview, previewRegion), e ->
+            JOptionPane.showMessageDialog(this, "Błąd przetwarzania obrazu", "Błąd", JOptionPane.ERROR_MESSAGE));
 
     public PodZad1() {
         setTitle("Aplikacja do przetwarzania obrazów");
@@ -25,8 +44,8 @@ public class PodZad1 extends JFrame {
         setLocationRelativeTo(null);                      // Ustawienie okna na środku ekranu
 
         // Tworzymy panel do wyświetlania obrazu
-        imageLabel = new JLabel(); // Tworzymy etykietę, która będzie trzymała obraz
-        add(imageLabel, BorderLayout.CENTER); // Dodajemy etykietę do głównego okna w centrum
+        imageView = new ImageViewer();
+        add(imageView, BorderLayout.CENTER); // Dodajemy widok do głównego okna w centrum
 
         // Tworzymy panel do przycisków
         controlPanel = new JPanel();
@@ -43,6 +62,11 @@ public class PodZad1 extends JFrame {
         });
         controlPanel.add(loadButton);
 
+        // Pasek postępu wczytywania obrazu
+        loadProgressBar = new JProgressBar(0, 100);
+        loadProgressBar.setStringPainted(true);
+        controlPanel.add(loadProgressBar);
+
         // Tworzymy przycisk do konwersji na odcienie szarości
         grayscaleButton = new JButton("Czarno-białe"); // Tworzymy przycisk
         grayscaleButton.addActionListener(new ActionListener() {
@@ -63,6 +87,11 @@ public class PodZad1 extends JFrame {
         });
         controlPanel.add(colorFilterButton);
 
+        // Tworzymy przycisk do cofania ostatniego efektu
+        undoButton = new JButton("Cofnij");
+        undoButton.addActionListener(e -> undoEffect());
+        controlPanel.add(undoButton);
+
         add(controlPanel, BorderLayout.SOUTH);
 
         // Tworzymy przycisk do regulacji nasycenia
@@ -78,108 +107,94 @@ public class PodZad1 extends JFrame {
     // Metoda do załadowania obrazu
     private void loadImage() {
         JFileChooser fileChooser = new JFileChooser();
-        int returnValue = fileChooser.showOpenDialog(this); // Wyświetlamy okno dialogowe do wyboru pliku
-
+        int returnValue = fileChooser.showOpenDialog(this);
         if (returnValue == JFileChooser.APPROVE_OPTION) {
-            File file = fileChooser.getSelectedFile(); // Pobieramy wybrany plik
-
-            // Tworzymy SwingWorker, który wczyta obraz w tle
-            SwingWorker<BufferedImage, Void> worker = new SwingWorker<>() {
-                @Override
-                protected BufferedImage doInBackground() throws Exception {
-                    return ImageIO.read(file); // Wczytanie obrazu z pliku
-                }
-
-                @Override
-                protected void done() {
-                    try {
-                        image = get(); // Pobieramy wynik operacji w tle
-                        ImageIcon imageIcon = new ImageIcon(image); // Tworzymy ikonę z obrazu
-                        imageLabel.setIcon(imageIcon);
-                        repaint(); // Odświeżamy widok
-                    } catch (Exception e) {
-                        JOptionPane.showMessageDialog(PodZad1.this, "Błąd podczas ładowania obrazu.", "Błąd", JOptionPane.ERROR_MESSAGE);
-                    }
+            File file = fileChooser.getSelectedFile();
+            if (loader != null) {
+                loader.cancel(true); // Przerywamy poprzednie, niedokończone wczytywanie
+            }
+            // Obraz dekodowany jest w tle; częściowo wczytany obraz pokazujemy od razu, a postęp na pasku
+            ImageSource source = new ImageSource(file);
+            loader = new ImageLoader(source, loadProgressBar, partial -> {
+                showImage(partial);
+            }, loaded -> {
+                scheduler.cancel(); // Wyniki i podglądy poprzedniego obrazu nie są już potrzebne
+                previewScheduler.cancel();
+                if (pipeline != null) {
+                    pipeline.close(); // Poprzedni obraz nie będzie już renderowany
                 }
-            };
-
-            // Uruchamiamy SwingWorker
-            worker.execute();
+                pipeline = new EffectPipeline(loaded, source); // Wczytany obraz staje się źródłem potoku efektów
+                pipeline.setRecycling(true); // Wyniki przychodzą po kolei z RenderScheduler
+                pipeline.setCache(RenderCache.shared()); // Powrót do policzonego już zestawu efektów nie wymaga przeliczania
+                showResult();
+            }, e -> JOptionPane.showMessageDialog(this, "Błąd podczas ładowania obrazu.", "Błąd", JOptionPane.ERROR_MESSAGE));
+            loader.execute();
         }
     }
 
-
     // Metoda do konwersji obrazu na odcienie szarości
     private void applyGrayscale() {
-        if (image != null) {
-            // Tworzymy nowy obraz, który będzie przechowywał wynik przetwarzania
-            BufferedImage grayscaleImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
-
-            // Iterujemy po wszystkich pikselach obrazu
-            for (int y = 0; y < image.getHeight(); y++) {
-                for (int x = 0; x < image.getWidth(); x++) {
-                    int pixel = image.getRGB(x, y);
-                    int r = (pixel >> 16) & 0xff;
-                    int g = (pixel >> 8) & 0xff;
-                    int b = pixel & 0xff;
-
-                    // Obliczamy wartość szarości
-                    int gray = (r + g + b) / 3;
-
-                    // Tworzymy nowy piksel w odcieniach szarości
-                    int newPixel = (gray << 16) | (gray << 8) | gray;
-
-                    // Ustawiamy przetworzony piksel na nowym obrazie
-                    grayscaleImage.setRGB(x, y, newPixel);
-                }
-            }
-
-            // Ustawiamy nowy obraz w etykiecie
-            imageLabel.setIcon(new ImageIcon(grayscaleImage));
-            image = grayscaleImage; // Zastępujemy oryginalny obraz nowym obrazem w odcieniach szarości
-            repaint();
+        if (pipeline != null) {
+            pipeline.add(EffectStep.of("grayscale")); // Dodajemy krok do potoku - obraz źródłowy pozostaje nietknięty
+            showResult();
         }
     }
 
     // Metoda do dostosowania nasycenia obrazu
     private void adjustSaturation() {
-        if (image != null) {
+        if (pipeline != null) {
             float saturation = saturationSlider.getValue() / 100f; // Pobieramy wartość z suwaka i przekształcamy na zakres 0-2
-            for (int y = 0; y < image.getHeight(); y++) {
-                for (int x = 0; x < image.getWidth(); x++) {
-                    int pixel = image.getRGB(x, y);
-                    int r = (pixel >> 16) & 0xff;
-                    int g = (pixel >> 8) & 0xff;
-                    int b = pixel & 0xff;
-
-                    float[] hsb = Color.RGBtoHSB(r, g, b, null);
-                    hsb[1] = Math.min(1.0f, hsb[1] * saturation); // Zmieniamy nasycenie
-                    Color newColor = Color.getHSBColor(hsb[0], hsb[1], hsb[2]); // Tworzymy nowy kolor z przekształconymi wartościami HSB
-
-                    image.setRGB(x, y, newColor.getRGB());
-                }
+            pipeline.replaceOrAdd(EffectStep.saturation(saturation)); // Zastępujemy poprzedni krok nasycenia zamiast go kumulować
+            if (saturationSlider.getValueIsAdjusting()) {
+                showPreview(); // W trakcie przeciągania suwaka liczymy tylko widoczny fragment obrazu
+            } else {
+                showResult(); // Pełną rozdzielczość liczymy dopiero po puszczeniu suwaka
             }
-            imageLabel.setIcon(new ImageIcon(image)); // Ustawiamy zmodyfikowany obraz na etykiecie
-            repaint();
         }
     }
 
     // Metoda do zastosowania filtra kolorystycznego
     private void applyColorFilter() {
-        if (image != null) { // Sprawdzamy, czy obraz jest załadowany
-            for (int y = 0; y < image.getHeight(); y++) {
-                for (int x = 0; x < image.getWidth(); x++) {
-                    int pixel = image.getRGB(x, y);
-                    int b = pixel & 0xff;
-
-                    // Filtr niebieski - zostawiamy tylko komponent niebieski
-                    int newPixel = (0) | b; // Ustawiamy czerwony i zielony na 0, a niebieski na oryginalny
-                    image.setRGB(x, y, newPixel); // Ustawiamy nowy piksel
-                }
-            }
-            imageLabel.setIcon(new ImageIcon(image)); // Ustawiamy zmodyfikowany obraz na etykiecie
-            repaint();
+        if (pipeline != null) { // Sprawdzamy, czy obraz jest załadowany
+            // Filtr niebieski - zostawiamy tylko komponent niebieski
+            pipeline.add(EffectStep.of("blue"));
+            showResult();
+        }
+    }
+
+    // Metoda do cofnięcia ostatniego efektu bez ponownego wczytywania pliku
+    private void undoEffect() {
+        if (pipeline != null && pipeline.removeLast()) {
+            showResult();
+        }
+    }
+
+    // Metoda wyświetlająca wynik potoku
+    private void showResult() {
+        previewScheduler.cancel(); // Spóźniony podgląd nie może przykryć pełnego wyniku
+        scheduler.submit(pipeline::render); // Liczymy w tle; nowsze zgłoszenie przerywa starsze
+    }
+
+    // Metoda wyświetlająca gotowy obraz
+    private void showImage(BufferedImage result) {
+        imageView.setImage(result); // Widok trzyma kopię w formacie ekranu
+    }
+
+    // Metoda wyświetlająca podgląd na żywo: efekty liczone są tylko na fragmencie obrazu widocznym w oknie
+    private void showPreview() {
+        scheduler.cancel(); // Wynik pełnej rozdzielczości z poprzedniego puszczenia suwaka jest już nieaktualny
+        Rectangle region = imageView.getVisibleRegion();
+        if (region.isEmpty()) {
+            previewScheduler.cancel();
+            return;
         }
+        // Podgląd ma tyle pikseli, ile zajmuje na ekranie widoczny fragment (nie więcej niż sam fragment)
+        int width = Math.max(1, (int) Math.ceil(region.width * Math.min(1, imageView.getScale())));
+        int height = Math.max(1, (int) Math.ceil(region.height * Math.min(1, imageView.getScale())));
+        previewRegion = region;
+        EffectPipeline current = pipeline;
+        // Przy szybkim przeciąganiu liczymy tylko najnowszy podgląd; pośrednie zgłoszenia planista pomija
+        previewScheduler.submit((cancelled, progress, bands) -> current.renderPreview(region, width, height));
     }
 
     // Metoda główna uruchamiająca aplikację
@@ -5,12 +5,30 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import javax.imageio.ImageIO;
+
+import imaging.EffectPipeline;
+import imaging.EffectStep;
+import imaging.ImageLoader;
+import imaging.ImageSource;
+import imaging.ImageViewer;
+import imaging.RenderCache;
+import imaging.RenderScheduler;
 
 public class PodZad2 extends JFrame {
-    private BufferedImage image; // Obraz do przetwarzania
-    private JLabel imageLabel; // Etykieta wyświetlająca obraz
+    private EffectPipeline pipeline; // Potok efektów: obraz źródłowy i lista kroków
+    private ImageViewer imageView; // Widok wyświetlający obraz
+    private JProgressBar loadProgressBar; // Pasek postępu wczytywania obrazu
+    private ImageLoader loader; // Trwające wczytywanie obrazu (można je przerwać)
     private JSlider saturationSlider; // Suwak do regulacji nasycenia
+    // Pasy wyniku trafiają do widoku w miarę liczenia, więc efekt widać od razu na górnej części obrazu
+    private final RenderScheduler scheduler = new RenderScheduler(this::showImage,
+            (partial, dirty) -> imageView.updateImage(partial, dirty), e ->
+            JOptionPane.showMessageDialog(this, "Błąd przetwarzania obrazu", "Błąd", JOptionPane.ERROR_MESSAGE));
+    // Podgląd na żywo w trakcie przeciągania suwaka - też w tle, żeby wątek GUI tylko odbierał zdarzenia myszy
+    private Rectangle previewRegion; // Fragment obrazu, dla którego liczony jest najnowszy podgląd
+    private final RenderScheduler previewScheduler = new RenderScheduler(
+            preview -> imageView.showOverlay(preview, previewRegion), e ->
+            JOptionPane.showMessageDialog(this, "Błąd przetwarzania obrazu", "Błąd", JOptionPane.ERROR_MESSAGE));
 
     public PodZad2() {
         setTitle("Przetwarzanie obrazu w czasie rzeczywistym");
@@ -19,8 +37,8 @@ public class PodZad2 extends JFrame {
         setLocationRelativeTo(null);
 
         // Etykieta do wyświetlania obrazu
-        imageLabel = new JLabel();
-        add(imageLabel, BorderLayout.CENTER);
+        imageView = new ImageViewer();
+        add(imageView, BorderLayout.CENTER);
 
         // Panel z kontrolkami
         JPanel controlPanel = new JPanel();
@@ -32,6 +50,11 @@ public class PodZad2 extends JFrame {
         loadButton.addActionListener(e -> loadImage());
         controlPanel.add(loadButton);
 
+        // Pasek postępu wczytywania obrazu
+        loadProgressBar = new JProgressBar(0, 100);
+        loadProgressBar.setStringPainted(true);
+        controlPanel.add(loadProgressBar);
+
         // Przycisk odcieni szarości
         JButton grayscaleButton = new JButton("Czarno-białe");
         grayscaleButton.addActionListener(e -> applyGrayscaleInWorker());
@@ -42,6 +65,11 @@ public class PodZad2 extends JFrame {
         colorFilterButton.addActionListener(e -> applyColorFilterInWorker());
         controlPanel.add(colorFilterButton);
 
+        // Przycisk cofania ostatniego efektu
+        JButton undoButton = new JButton("Cofnij");
+        undoButton.addActionListener(e -> undoInWorker());
+        controlPanel.add(undoButton);
+
         add(controlPanel, BorderLayout.SOUTH);
 
         // Suwak nasycenia
@@ -59,115 +87,87 @@ public class PodZad2 extends JFrame {
         int returnValue = fileChooser.showOpenDialog(this);
         if (returnValue == JFileChooser.APPROVE_OPTION) {
             File file = fileChooser.getSelectedFile();
-            try {
-                image = ImageIO.read(file);
-                imageLabel.setIcon(new ImageIcon(image));
-                repaint();
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(this, "Błąd podczas ładowania obrazu", "Błąd", JOptionPane.ERROR_MESSAGE);
+            if (loader != null) {
+                loader.cancel(true); // Przerywamy poprzednie, niedokończone wczytywanie
             }
+            // Obraz dekodowany jest w tle; częściowo wczytany obraz pokazujemy od razu, a postęp na pasku
+            ImageSource source = new ImageSource(file);
+            loader = new ImageLoader(source, loadProgressBar, partial -> {
+                showImage(partial);
+            }, loaded -> {
+                scheduler.cancel(); // Wyniki i podglądy dla poprzedniego obrazu nie są już potrzebne
+                previewScheduler.cancel();
+                if (pipeline != null) {
+                    pipeline.close();
+                }
+                pipeline = new EffectPipeline(loaded, source);
+                pipeline.setRecycling(true); // Wyniki przychodzą po kolei z RenderScheduler
+                pipeline.setCache(RenderCache.shared());
+                showImage(loaded);
+            }, e -> JOptionPane.showMessageDialog(this, "Błąd podczas ładowania obrazu", "Błąd", JOptionPane.ERROR_MESSAGE));
+            loader.execute();
         }
     }
 
     private void applyGrayscaleInWorker() {
-        if (image != null) {
-            new SwingWorker<BufferedImage, Void>() {
-                @Override
-                protected BufferedImage doInBackground() {
-                    BufferedImage grayscaleImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
-                    for (int y = 0; y < image.getHeight(); y++) {
-                        for (int x = 0; x < image.getWidth(); x++) {
-                            int pixel = image.getRGB(x, y);
-                            int r = (pixel >> 16) & 0xff;
-                            int g = (pixel >> 8) & 0xff;
-                            int b = pixel & 0xff;
-                            int gray = (r + g + b) / 3;
-                            int newPixel = (gray << 16) | (gray << 8) | gray;
-                            grayscaleImage.setRGB(x, y, newPixel);
-                        }
-                    }
-                    return grayscaleImage;
-                }
-
-                @Override
-                protected void done() {
-                    try {
-                        image = get();
-                        imageLabel.setIcon(new ImageIcon(image));
-                        repaint();
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                }
-            }.execute();
+        if (pipeline != null) {
+            pipeline.add(EffectStep.of("grayscale"));
+            renderInWorker();
         }
     }
 
     private void adjustSaturationInWorker() {
-        if (image != null) {
+        if (pipeline != null) {
             float saturation = saturationSlider.getValue() / 100f;
-            new SwingWorker<BufferedImage, Void>() {
-                @Override
-                protected BufferedImage doInBackground() {
-                    BufferedImage adjustedImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
-                    for (int y = 0; y < image.getHeight(); y++) {
-                        for (int x = 0; x < image.getWidth(); x++) {
-                            int pixel = image.getRGB(x, y);
-                            int r = (pixel >> 16) & 0xff;
-                            int g = (pixel >> 8) & 0xff;
-                            int b = pixel & 0xff;
-                            float[] hsb = Color.RGBtoHSB(r, g, b, null);
-                            hsb[1] = Math.min(1.0f, hsb[1] * saturation);
-                            Color newColor = Color.getHSBColor(hsb[0], hsb[1], hsb[2]);
-                            adjustedImage.setRGB(x, y, newColor.getRGB());
-                        }
-                    }
-                    return adjustedImage;
-                }
-
-                @Override
-                protected void done() {
-                    try {
-                        image = get();
-                        imageLabel.setIcon(new ImageIcon(image));
-                        repaint();
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                }
-            }.execute();
+            pipeline.replaceOrAdd(EffectStep.saturation(saturation)); // Nasycenie liczone od obrazu sprzed poprzedniej regulacji
+            if (saturationSlider.getValueIsAdjusting()) {
+                showPreview(); // Podczas przeciągania tylko widoczny fragment, liczony w tle
+            } else {
+                renderInWorker(); // Pełna rozdzielczość dopiero po puszczeniu suwaka
+            }
         }
     }
 
     private void applyColorFilterInWorker() {
-        if (image != null) {
-            new SwingWorker<BufferedImage, Void>() {
-                @Override
-                protected BufferedImage doInBackground() {
-                    BufferedImage filteredImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
-                    for (int y = 0; y < image.getHeight(); y++) {
-                        for (int x = 0; x < image.getWidth(); x++) {
-                            int pixel = image.getRGB(x, y);
-                            int b = pixel & 0xff;
-                            int newPixel = (0) | b;
-                            filteredImage.setRGB(x, y, newPixel);
-                        }
-                    }
-                    return filteredImage;
-                }
+        if (pipeline != null) {
+            pipeline.add(EffectStep.of("blue"));
+            renderInWorker();
+        }
+    }
 
-                @Override
-                protected void done() {
-                    try {
-                        image = get();
-                        imageLabel.setIcon(new ImageIcon(image));
-                        repaint();
-                    } catch (Exception e) {
-                        e.printStackTrace();
-                    }
-                }
-            }.execute();
+    private void undoInWorker() {
+        if (pipeline != null && pipeline.removeLast()) {
+            renderInWorker();
+        }
+    }
+
+    // Każda zmiana potoku zgłasza przeliczenie brakujących kroków do planisty RenderScheduler (w jego wątku roboczym)
+    private void renderInWorker() {
+        // Zamiast nowego SwingWorkera dla każdego zdarzenia suwaka zgłaszamy zadanie do planisty: nieaktualne zadanie
+        // w toku zostaje przerwane, a z oczekujących liczy się tylko najnowsze
+        previewScheduler.cancel(); // Spóźniony podgląd nie może przykryć pełnego wyniku
+        scheduler.submit(pipeline::render);
+    }
+
+    private void showImage(BufferedImage result) {
+        imageView.setImage(result);
+    }
+
+    // Podgląd na żywo: efekty liczone są tylko na fragmencie obrazu widocznym w oknie
+    private void showPreview() {
+        scheduler.cancel(); // Pełna rozdzielczość liczona w tle jest już nieaktualna
+        Rectangle region = imageView.getVisibleRegion();
+        if (region.isEmpty()) {
+            previewScheduler.cancel();
+            return;
         }
+        // Podgląd ma tyle pikseli, ile zajmuje na ekranie widoczny fragment (nie więcej niż sam fragment)
+        int width = Math.max(1, (int) Math.ceil(region.width * Math.min(1, imageView.getScale())));
+        int height = Math.max(1, (int) Math.ceil(region.height * Math.min(1, imageView.getScale())));
+        previewRegion = region;
+        EffectPipeline current = pipeline;
+        // Przy szybkim przeciąganiu liczymy tylko najnowszy podgląd; pośrednie zgłoszenia planista pomija
+        previewScheduler.submit((cancelled, progress, bands) -> current.renderPreview(region, width, height));
     }
 
     public static void main(String[] args) {
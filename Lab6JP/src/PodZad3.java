@@ -7,16 +7,28 @@ import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import javax.imageio.ImageIO;
+import java.util.ArrayList;
+import java.util.List;
+
+import imaging.EffectPipeline;
+import imaging.EffectControls;
+import imaging.EffectRegistry;
+import imaging.EffectStep;
+import imaging.ImageLoader;
+import imaging.ImageSource;
+import imaging.ImageViewer;
+import imaging.PixelEffect;
+import imaging.RenderCache;
 
 public class PodZad3 extends JFrame {
-    private BufferedImage image;
-    private JLabel imageLabel;
+    private EffectPipeline pipeline; // Obraz źródłowy i lista zastosowanych efektów
+    private ImageViewer imageView;
+    private JProgressBar loadProgressBar; // Pasek postępu wczytywania obrazu
+    private ImageLoader loader; // Trwające wczytywanie obrazu (można je przerwać)
     private JPanel controlPanel;
     private JButton loadButton;
-    private JButton grayscaleButton;
-    private JButton invertButton;
-    private JButton sepiaButton;
+    private JButton undoButton;
+    private final List<SwingWorker<BufferedImage, Rectangle>> workers = new ArrayList<>(); // Przetwarzanie w toku
 
     public PodZad3() {
         setTitle("Przetwarzanie obrazu - SwingWorker");
@@ -24,8 +36,8 @@ public class PodZad3 extends JFrame {
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
 
-        imageLabel = new JLabel();
-        add(imageLabel, BorderLayout.CENTER);
+        imageView = new ImageViewer();
+        add(imageView, BorderLayout.CENTER);
 
         controlPanel = new JPanel();
         controlPanel.setLayout(new FlowLayout());
@@ -41,32 +53,25 @@ public class PodZad3 extends JFrame {
         controlPanel.setBackground(Color.decode("#DC667C"));
         controlPanel.add(loadButton);
 
-        grayscaleButton = new JButton("Efekt: Czarno-białe");
-        grayscaleButton.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                applyEffectInThread("grayscale");
-            }
-        });
-        controlPanel.add(grayscaleButton);
+        // Pasek postępu wczytywania obrazu
+        loadProgressBar = new JProgressBar(0, 100);
+        loadProgressBar.setStringPainted(true);
+        controlPanel.add(loadProgressBar);
 
-        invertButton = new JButton("Efekt: Inwersja");
-        invertButton.addActionListener(new ActionListener() {
-            @Override
-            public void actionPerformed(ActionEvent e) {
-                applyEffectInThread("invert");
-            }
-        });
-        controlPanel.add(invertButton);
+        // Przyciski efektów powstają z rejestru, więc nowy efekt (także z osobnego jara) nie wymaga zmian w oknie.
+        // O parametr efektu (np. sigma rozmycia) przycisk pyta w osobnym oknie dialogowym.
+        for (PixelEffect effect : EffectRegistry.effects()) {
+            controlPanel.add(EffectControls.button(effect, this, this::applyEffectInThread));
+        }
 
-        sepiaButton = new JButton("Efekt: Sepia");
-        sepiaButton.addActionListener(new ActionListener() {
+        undoButton = new JButton("Cofnij");
+        undoButton.addActionListener(new ActionListener() {
             @Override
             public void actionPerformed(ActionEvent e) {
-                applyEffectInThread("sepia");
+                undoEffect();
             }
         });
-        controlPanel.add(sepiaButton);
+        controlPanel.add(undoButton);
     }
 
     private void loadImage() {
@@ -74,79 +79,87 @@ public class PodZad3 extends JFrame {
         int returnValue = fileChooser.showOpenDialog(this);
         if (returnValue == JFileChooser.APPROVE_OPTION) {
             File file = fileChooser.getSelectedFile();
-            try {
-                image = ImageIO.read(file);
-                imageLabel.setIcon(new ImageIcon(image));
-                repaint();
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(this, "Błąd ładowania obrazu", "Błąd", JOptionPane.ERROR_MESSAGE);
+            if (loader != null) {
+                loader.cancel(true); // Przerywamy poprzednie, niedokończone wczytywanie
             }
+            // Obraz dekodowany jest w tle; częściowo wczytany obraz pokazujemy od razu, a postęp na pasku
+            ImageSource source = new ImageSource(file);
+            loader = new ImageLoader(source, loadProgressBar, partial -> {
+                imageView.setImage(partial);
+            }, loaded -> {
+                // Wyniki i pasy liczone dla poprzedniego obrazu nie mogą już trafić do widoku
+                workers.forEach(worker -> worker.cancel(true));
+                workers.clear();
+                if (pipeline != null) {
+                    pipeline.close(); // Zwalniamy zasoby potoku poprzedniego obrazu
+                }
+                pipeline = new EffectPipeline(loaded, source);
+                pipeline.setCache(RenderCache.shared()); // Przełączanie między wyglądami (np. sepia i czerń-biel) bierze wynik z pamięci
+                imageView.setImage(loaded);
+            }, e -> JOptionPane.showMessageDialog(this, "Błąd ładowania obrazu", "Błąd", JOptionPane.ERROR_MESSAGE));
+            loader.execute();
         }
     }
 
-    private void applyEffectInThread(String effect) {
-        if (image == null) {
+    private void applyEffectInThread(EffectStep step) {
+        if (pipeline == null) {
             JOptionPane.showMessageDialog(this, "Najpierw załaduj obraz", "Brak obrazu", JOptionPane.WARNING_MESSAGE);
             return;
         }
 
+        pipeline.add(step); // Efekt trafia na koniec potoku, obraz źródłowy pozostaje bez zmian
+        renderInThread();
+    }
+
+    private void undoEffect() {
+        if (pipeline != null && pipeline.removeLast()) {
+            renderInThread(); // Poprzedni wynik jest zapamiętany w potoku, więc nie trzeba nic liczyć od nowa
+        }
+    }
+
+    private void renderInThread() {
         // SwingWorker to proces wykonujący przetwarzanie w tle
-        SwingWorker<BufferedImage, Void> worker = new SwingWorker<>() {
+        // Gotowe pasy wierszy publikujemy; SwingWorker łączy zgłoszenia i wywołuje process najwyżej ok. 30 razy na sekundę
+        EffectPipeline current = pipeline; // Wczytanie nowego obrazu podmienia pole, a przetwarzanie dotyczy tego potoku
+        SwingWorker<BufferedImage, Rectangle> worker = new SwingWorker<>() {
+            private volatile BufferedImage partial; // Obraz, do którego trafiają kolejne pasy
+
             @Override
             protected BufferedImage doInBackground() throws Exception {
-                BufferedImage processedImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+                // Brakujące kroki liczymy równolegle na pasach wierszy, na wszystkich rdzeniach
+                return current.render(this::isCancelled, this::setProgress, (image, band) -> {
+                    partial = image;
+                    publish(band);
+                });
+            }
 
-                for (int y = 0; y < image.getHeight(); y++) {
-                    for (int x = 0; x < image.getWidth(); x++) {
-                        int pixel = image.getRGB(x, y);
-                        processedImage.setRGB(x, y, processPixel(pixel, effect));
-                    }
+            @Override
+            protected void process(List<Rectangle> bands) {
+                if (isCancelled()) {
+                    return; // Wczytano nowy obraz
                 }
-
-                return processedImage;
+                Rectangle dirty = new Rectangle(bands.get(0));
+                bands.forEach(dirty::add);
+                imageView.updateImage(partial, dirty); // Odświeżamy tylko zmienione wiersze
             }
 
             @Override
             protected void done() {
+                workers.remove(this);
+                if (isCancelled()) {
+                    return;
+                }
                 try {
-                    image = get(); // Zastępujemy oryginalny obraz przetworzonym
-                    imageLabel.setIcon(new ImageIcon(image));
-                    repaint();
+                    imageView.setImage(get());
                 } catch (Exception e) {
                     JOptionPane.showMessageDialog(null, "Błąd przetwarzania obrazu", "Błąd", JOptionPane.ERROR_MESSAGE);
                 }
             }
         };
+        workers.add(worker);
         worker.execute();
     }
 
-    private int processPixel(int pixel, String effect) {
-        int r = (pixel >> 16) & 0xff;
-        int g = (pixel >> 8) & 0xff;
-        int b = pixel & 0xff;
-
-        switch (effect) {
-            case "grayscale":
-                int gray = (r + g + b) / 3;
-                return (0xff << 24) | (gray << 16) | (gray << 8) | gray;
-
-            case "invert":
-                return (0xff << 24) | ((255 - r) << 16) | ((255 - g) << 8) | (255 - b);
-
-            case "sepia":
-                int tr = (int)(0.393 * r + 0.769 * g + 0.189 * b);
-                int tg = (int)(0.349 * r + 0.686 * g + 0.168 * b);
-                int tb = (int)(0.272 * r + 0.534 * g + 0.131 * b);
-                tr = Math.min(255, tr);
-                tg = Math.min(255, tg);
-                tb = Math.min(255, tb);
-                return (0xff << 24) | (tr << 16) | (tg << 8) | tb;
-
-            default:
-                return pixel; // Brak przetwarzania
-        }
-    }
-
     public static void main(String[] args) {
         SwingUtilities.invokeLater(() -> {
             PodZad3 app = new PodZad3();
@@ -5,19 +5,32 @@ import javax.swing.*;
 import java.awt.*;
 import java.awt.image.BufferedImage;
 import java.io.File;
-import javax.imageio.ImageIO;
+import java.util.List;
+
+import imaging.EffectPipeline;
+import imaging.EffectControls;
+import imaging.EffectRegistry;
+import imaging.EffectStep;
+import imaging.ImageLoader;
+import imaging.ImageSource;
+import imaging.ImageViewer;
+import imaging.PixelEffect;
+import imaging.PixelEngine;
+import imaging.RenderCache;
 
 public class PodZad4 extends JFrame {
-    private BufferedImage image;
-    private JLabel imageLabel;
+    private EffectPipeline pipeline; // Obraz źródłowy i lista zastosowanych efektów
+    private ImageViewer imageView;
+    private JProgressBar loadProgressBar; // Pasek postępu wczytywania obrazu
+    private JProgressBar effectProgressBar; // Pasek postępu przetwarzania efektu
+    private ImageLoader loader; // Trwające wczytywanie obrazu (można je przerwać)
     private JPanel controlPanel;
     private JButton loadButton;
-    private JButton grayscaleButton;
-    private JButton invertButton;
-    private JButton sepiaButton;
+    private JButton undoButton;
     private JButton cancelButton;
 
-    private SwingWorker<BufferedImage, Void> currentWorker;
+    private SwingWorker<BufferedImage, Rectangle> currentWorker;
+    private BufferedImage shownImage; // Ostatni pełny obraz w widoku - wraca na ekran po anulowaniu efektu
 
     public PodZad4() {
         setTitle("Przetwarzanie obrazu - SwingWorker");
@@ -25,8 +38,8 @@ public class PodZad4 extends JFrame {
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
 
-        imageLabel = new JLabel();
-        add(imageLabel, BorderLayout.CENTER);
+        imageView = new ImageViewer();
+        add(imageView, BorderLayout.CENTER);
 
         controlPanel = new JPanel();
         controlPanel.setLayout(new FlowLayout());
@@ -37,17 +50,24 @@ public class PodZad4 extends JFrame {
         loadButton.addActionListener(e -> loadImage());
         controlPanel.add(loadButton);
 
-        grayscaleButton = new JButton("Efekt: Czarno-białe");
-        grayscaleButton.addActionListener(e -> applyEffectInThread("grayscale"));
-        controlPanel.add(grayscaleButton);
+        // Pasek postępu wczytywania obrazu
+        loadProgressBar = new JProgressBar(0, 100);
+        loadProgressBar.setStringPainted(true);
+        controlPanel.add(loadProgressBar);
 
-        invertButton = new JButton("Efekt: Inwersja");
-        invertButton.addActionListener(e -> applyEffectInThread("invert"));
-        controlPanel.add(invertButton);
+        // Jeden przycisk na każdy efekt z EffectRegistry; efekty z parametrem pytają o jego wartość
+        for (PixelEffect effect : EffectRegistry.effects()) {
+            controlPanel.add(EffectControls.button(effect, this, this::applyEffectInThread));
+        }
+
+        // Pasek postępu efektu - aktualizowany po każdym pasie wierszy
+        effectProgressBar = new JProgressBar(0, 100);
+        effectProgressBar.setStringPainted(true);
+        controlPanel.add(effectProgressBar);
 
-        sepiaButton = new JButton("Efekt: Sepia");
-        sepiaButton.addActionListener(e -> applyEffectInThread("sepia"));
-        controlPanel.add(sepiaButton);
+        undoButton = new JButton("Cofnij");
+        undoButton.addActionListener(e -> undoEffect());
+        controlPanel.add(undoButton);
 
         cancelButton = new JButton("Anuluj");
         cancelButton.addActionListener(e -> cancelProcessing());
@@ -60,18 +80,39 @@ public class PodZad4 extends JFrame {
         int returnValue = fileChooser.showOpenDialog(this);
         if (returnValue == JFileChooser.APPROVE_OPTION) {
             File file = fileChooser.getSelectedFile();
-            try {
-                image = ImageIO.read(file);
-                imageLabel.setIcon(new ImageIcon(image));
-                repaint();
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(this, "Błąd ładowania obrazu", "Błąd", JOptionPane.ERROR_MESSAGE);
+            if (loader != null) {
+                loader.cancel(true); // Przerywamy poprzednie, niedokończone wczytywanie
             }
+            // Obraz dekodowany jest w tle; częściowo wczytany obraz pokazujemy od razu, a postęp na pasku
+            ImageSource source = new ImageSource(file);
+            loader = new ImageLoader(source, loadProgressBar, partial -> {
+                imageView.setImage(partial);
+            }, loaded -> {
+                cancelButton.setEnabled(false);
+                if (currentWorker != null) {
+                    // Przetwarzanie poprzedniego obrazu zapominamy; jego done rozpozna po potoku, że jest nieaktualne
+                    currentWorker.cancel(true);
+                    currentWorker = null;
+                }
+                effectProgressBar.setValue(0);
+                if (pipeline != null) {
+                    pipeline.close();
+                }
+                pipeline = new EffectPipeline(loaded, source);
+                pipeline.setRecycling(true); // Naraz działa tylko jeden worker, więc wyniki przychodzą po kolei
+                pipeline.setCache(RenderCache.shared());
+                showImage(loaded);
+            }, e -> {
+                cancelButton.setEnabled(false);
+                JOptionPane.showMessageDialog(this, "Błąd ładowania obrazu", "Błąd", JOptionPane.ERROR_MESSAGE);
+            });
+            cancelButton.setEnabled(true); // Wczytywanie też można anulować
+            loader.execute();
         }
     }
 
-    private void applyEffectInThread(String effect) {
-        if (image == null) {
+    private void applyEffectInThread(EffectStep step) {
+        if (pipeline == null) {
             JOptionPane.showMessageDialog(this, "Najpierw załaduj obraz", "Brak obrazu", JOptionPane.WARNING_MESSAGE);
             return;
         }
@@ -81,38 +122,56 @@ public class PodZad4 extends JFrame {
             return;
         }
 
+        EffectPipeline target = pipeline;
+        int stepIndex = target.add(step); // Dodajemy efekt do potoku; po anulowaniu zostanie usunięty
+        renderInThread(() -> target.remove(stepIndex)); // Anulowany efekt nie zostaje w potoku
+    }
+
+    // Liczymy wynik potoku w tle; po anulowaniu onCancel przywraca poprzedni stan potoku, a widok - poprzedni obraz.
+    // cancel(true) nie zatrzymuje liczenia od razu (isDone jest prawdą, zanim render sprawdzi anulowanie), a wczytanie
+    // nowego obrazu podmienia potok - dlatego wynik i pasy pokazujemy tylko wtedy, gdy potok jest wciąż ten sam.
+    private void renderInThread(Runnable onCancel) {
         cancelButton.setEnabled(true);
+        EffectPipeline current = pipeline;
 
         currentWorker = new SwingWorker<>() {
+            private volatile BufferedImage partial; // Liczony wynik - pokazujemy go pasami, zanim będzie gotowy
+
             @Override
             protected BufferedImage doInBackground() throws Exception {
-                BufferedImage processedImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+                // Pasy wierszy liczone są równolegle; anulowanie sprawdzamy raz na pas, a nie dla każdego piksela, i raz
+                // na pas raportujemy postęp. Bufor anulowanego wyniku wraca do puli.
+                BufferedImage processedImage = current.render(this::isCancelled, this::setProgress, (image, band) -> {
+                    partial = image;
+                    publish(band); // Wywołania process są łączone przez SwingWorker
+                });
+                return isCancelled() ? null : processedImage;
+            }
 
-                for (int y = 0; y < image.getHeight(); y++) {
-                    if (isCancelled()) {
-                        break;
-                    }
-                    for (int x = 0; x < image.getWidth(); x++) {
-                        if (isCancelled()) {
-                            break;
-                        }
-                        int pixel = image.getRGB(x, y);
-                        processedImage.setRGB(x, y, processPixel(pixel, effect));
-                    }
+            @Override
+            protected void process(List<Rectangle> bands) {
+                if (isCancelled() || current != pipeline) {
+                    return;
                 }
-
-                return isCancelled() ? null : processedImage;
+                Rectangle dirty = new Rectangle(bands.get(0));
+                bands.forEach(dirty::add);
+                imageView.updateImage(partial, dirty);
             }
 
             @Override
             protected void done() {
+                if (current != pipeline) {
+                    return; // Wczytano nowy obraz - ani wynik, ani przywracanie stanu już go nie dotyczą
+                }
                 try {
                     cancelButton.setEnabled(false);
                     if (!isCancelled()) {
-                        image = get(); // Zastępujemy oryginalny obraz przetworzonym
-                        imageLabel.setIcon(new ImageIcon(image));
-                        repaint();
+                        showImage(get()); // Wyświetlamy wynik potoku
                     } else {
+                        onCancel.run();
+                        // Zasłaniamy pasy pokazane przed anulowaniem obrazem sprzed zmiany - bez liczenia w wątku GUI
+                        imageView.setImage(shownImage);
+                        effectProgressBar.setValue(0);
                         JOptionPane.showMessageDialog(null, "Operacja anulowana", "Anulowano", JOptionPane.INFORMATION_MESSAGE);
                     }
                 } catch (Exception e) {
@@ -120,39 +179,53 @@ public class PodZad4 extends JFrame {
                 }
             }
         };
+        effectProgressBar.setValue(0);
+        currentWorker.addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                effectProgressBar.setValue((Integer) e.getNewValue());
+            }
+        });
         currentWorker.execute();
     }
 
-    private void cancelProcessing() {
+    private void undoEffect() {
         if (currentWorker != null && !currentWorker.isDone()) {
-            currentWorker.cancel(true);
+            JOptionPane.showMessageDialog(this, "Inny proces jest w toku", "Błąd", JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+        if (pipeline == null || pipeline.size() == 0) {
+            return;
         }
+        List<EffectStep> steps = pipeline.getSteps();
+        EffectStep undone = steps.get(steps.size() - 1);
+        pipeline.removeLast();
+        // Poprzedni wynik jest zwykle zapamiętany w potoku, ale mógł wypaść z pamięci podręcznej - wtedy liczenie trwa
+        // jak przy efekcie, więc też odbywa się w tle. Po anulowaniu cofnięty krok wraca do potoku.
+        renderInThread(() -> {
+            pipeline.add(undone);
+            // Wynik cofniętego kroku nie wrócił do potoku razem z krokiem i jego bufor może trafić do puli, a widok
+            // będzie go przywracał przy kolejnym anulowaniu - zostawiamy sobie kopię
+            BufferedImage shown = shownImage;
+            if (PixelEngine.isIntBacked(shown)) {
+                shownImage = PixelEngine.wrap(PixelEngine.data(shown).clone(), shown.getWidth(), shown.getHeight());
+            }
+        });
+    }
+
+    // Widok trzyma kopię obrazu, a my sam obraz - to źródło albo zapamiętany wynik ostatniego kroku potoku, więc potok
+    // nie odda jego bufora do puli, dopóki anulowanie przywraca poprzednią listę kroków
+    private void showImage(BufferedImage image) {
+        shownImage = image;
+        imageView.setImage(image);
     }
 
-    private int processPixel(int pixel, String effect) {
-        int r = (pixel >> 16) & 0xff;
-        int g = (pixel >> 8) & 0xff;
-        int b = pixel & 0xff;
-
-        switch (effect) {
-            case "grayscale":
-                int gray = (r + g + b) / 3;
-                return (0xff << 24) | (gray << 16) | (gray << 8) | gray;
-
-            case "invert":
-                return (0xff << 24) | ((255 - r) << 16) | ((255 - g) << 8) | (255 - b);
-
-            case "sepia":
-                int tr = (int)(0.393 * r + 0.769 * g + 0.189 * b);
-                int tg = (int)(0.349 * r + 0.686 * g + 0.168 * b);
-                int tb = (int)(0.272 * r + 0.534 * g + 0.131 * b);
-                tr = Math.min(255, tr);
-                tg = Math.min(255, tg);
-                tb = Math.min(255, tb);
-                return (0xff << 24) | (tr << 16) | (tg << 8) | tb;
-
-            default:
-                return pixel; // Brak przetwarzania
+    private void cancelProcessing() {
+        if (currentWorker != null && !currentWorker.isDone()) {
+            currentWorker.cancel(true);
+        }
+        if (loader != null && !loader.isDone()) {
+            loader.cancel(true); // Dekoder zatrzyma się przy najbliższym raporcie postępu
+            cancelButton.setEnabled(false);
         }
     }
 
@@ -7,20 +7,31 @@
 
 import javax.swing.*;
 import java.awt.*;
-import java.awt.image.BufferedImage;
 import java.io.File;
-import javax.imageio.ImageIO;
-
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.UnaryOperator;
+
+import imaging.EffectControls;
+import imaging.EffectRegistry;
+import imaging.EffectStep;
+import imaging.ImageLoader;
+import imaging.ImageSnapshot;
+import imaging.ImageSource;
+import imaging.ImageViewer;
+import imaging.PixelEffect;
+import imaging.Workers;
+
+// Wspólny obraz jest tu niezmienną migawką (ImageSnapshot) publikowaną przez AtomicReference zamiast obiektem chronionym
+// blokadą: odczyt (wątki robocze, odświeżanie widoku) nigdy nie czeka, a efekty uruchomione jednocześnie liczą się
+// równolegle. Nowa wersja jest publikowana przez compareAndSet - patrz publish.
 public class PodZad5 extends JFrame {
-    private BufferedImage image;
-    private JLabel imageLabel;
+    private final AtomicReference<ImageSnapshot> state = new AtomicReference<>(); // Aktualna wersja obrazu (null - brak)
+    private ImageViewer imageView;
+    private JProgressBar loadProgressBar; // Pasek postępu wczytywania obrazu
+    private ImageLoader loader; // Trwające wczytywanie obrazu (można je przerwać)
     private JPanel controlPanel;
     private JButton loadButton;
-    private JButton grayscaleButton;
-    private JButton invertButton;
-    private JButton sepiaButton;
-
-    private final Object imageLock = new Object();
+    private JButton undoButton;
 
     public PodZad5() {
         setTitle("Przetwarzanie obrazu - Asynchroniczne operacje");
@@ -28,8 +39,8 @@ public class PodZad5 extends JFrame {
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
         setLocationRelativeTo(null);
 
-        imageLabel = new JLabel();
-        add(imageLabel, BorderLayout.CENTER);
+        imageView = new ImageViewer();
+        add(imageView, BorderLayout.CENTER);
 
         controlPanel = new JPanel();
         controlPanel.setLayout(new FlowLayout());
@@ -40,17 +51,19 @@ public class PodZad5 extends JFrame {
         loadButton.addActionListener(e -> loadImage());
         controlPanel.add(loadButton);
 
-        grayscaleButton = new JButton("Efekt: Czarno-białe");
-        grayscaleButton.addActionListener(e -> applyEffectAsync("grayscale"));
-        controlPanel.add(grayscaleButton);
+        // Pasek postępu wczytywania obrazu
+        loadProgressBar = new JProgressBar(0, 100);
+        loadProgressBar.setStringPainted(true);
+        controlPanel.add(loadProgressBar);
 
-        invertButton = new JButton("Efekt: Inwersja");
-        invertButton.addActionListener(e -> applyEffectAsync("invert"));
-        controlPanel.add(invertButton);
+        // Jeden przycisk na każdy efekt z EffectRegistry; efekty z parametrem pytają o jego wartość
+        for (PixelEffect effect : EffectRegistry.effects()) {
+            controlPanel.add(EffectControls.button(effect, this, this::applyEffectAsync));
+        }
 
-        sepiaButton = new JButton("Efekt: Sepia");
-        sepiaButton.addActionListener(e -> applyEffectAsync("sepia"));
-        controlPanel.add(sepiaButton);
+        undoButton = new JButton("Cofnij");
+        undoButton.addActionListener(e -> undoEffectAsync());
+        controlPanel.add(undoButton);
     }
 
     private void loadImage() {
@@ -58,72 +71,75 @@ public class PodZad5 extends JFrame {
         int returnValue = fileChooser.showOpenDialog(this);
         if (returnValue == JFileChooser.APPROVE_OPTION) {
             File file = fileChooser.getSelectedFile();
-            try {
-                synchronized (imageLock) {
-                    image = ImageIO.read(file);
-                }
-                imageLabel.setIcon(new ImageIcon(image));
-                repaint();
-            } catch (Exception e) {
-                JOptionPane.showMessageDialog(this, "Błąd ładowania obrazu", "Błąd", JOptionPane.ERROR_MESSAGE);
+            if (loader != null) {
+                loader.cancel(true); // Przerywamy poprzednie, niedokończone wczytywanie
             }
+            // Obraz dekodowany jest w tle; częściowo wczytany obraz pokazujemy od razu, a postęp na pasku
+            ImageSource source = new ImageSource(file);
+            loader = new ImageLoader(source, loadProgressBar, partial -> {
+                imageView.setImage(partial);
+            }, loaded -> {
+                state.set(ImageSnapshot.of(loaded)); // Nowy obraz zastępuje poprzedni bez względu na efekty w toku
+                showLatest();
+            }, e -> JOptionPane.showMessageDialog(this, "Błąd ładowania obrazu", "Błąd", JOptionPane.ERROR_MESSAGE));
+            loader.execute();
         }
     }
 
-    private void applyEffectAsync(String effect) {
-        if (image == null) {
+    private void applyEffectAsync(EffectStep step) {
+        if (state.get() == null) {
             JOptionPane.showMessageDialog(this, "Najpierw załaduj obraz", "Brak obrazu", JOptionPane.WARNING_MESSAGE);
             return;
         }
 
-        new Thread(() -> {
-            BufferedImage tempImage;
-            synchronized (imageLock) {
-                tempImage = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
-
-                for (int y = 0; y < image.getHeight(); y++) {
-                    for (int x = 0; x < image.getWidth(); x++) {
-                        int pixel = image.getRGB(x, y);
-                        tempImage.setRGB(x, y, processPixel(pixel, effect));
-                    }
-                }
+        // Przetwarzanie pikseli na wspólnej puli wątków obliczeniowych
+        publishAsync(snapshot -> snapshot.withStep(step));
+    }
+
+    private void undoEffectAsync() {
+        if (state.get() == null) {
+            return;
+        }
+
+        publishAsync(ImageSnapshot::withoutLastStep);
+    }
+
+    // Zmianę liczymy na wspólnej puli wątków obliczeniowych, a obraz aktualizujemy w głównym wątku. Pula nie przekazuje
+    // nikomu wyjątków z zadań, więc błąd (także brak pamięci na duży obraz) zgłaszamy sami, też w głównym wątku.
+    private void publishAsync(UnaryOperator<ImageSnapshot> change) {
+        Workers.cpu().execute(() -> {
+            try {
+                publish(change);
+                SwingUtilities.invokeLater(this::showLatest);
+            } catch (RuntimeException | OutOfMemoryError e) {
+                SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(this, "Błąd przetwarzania obrazu",
+                        "Błąd", JOptionPane.ERROR_MESSAGE));
             }
+        });
+    }
 
-            // Aktualizujemy obraz w głównym wątku
-            SwingUtilities.invokeLater(() -> {
-                synchronized (imageLock) {
-                    image = tempImage;
-                }
-                imageLabel.setIcon(new ImageIcon(image));
-                repaint();
-            });
-        }).start();
+    // Liczymy nową wersję na podstawie aktualnej migawki i publikujemy ją przez compareAndSet. Zasada rozwiązywania
+    // konfliktów: jeśli w czasie liczenia inny wątek opublikował nowszą wersję tego samego obrazu, zmianę liczymy
+    // ponownie na tej wersji (żaden efekt ani cofnięcie nie ginie, a kolejność odpowiada kolejności publikacji);
+    // jeśli w międzyczasie wczytano inny obraz, zmianę porzucamy. Zwraca opublikowaną migawkę albo null.
+    private ImageSnapshot publish(UnaryOperator<ImageSnapshot> change) {
+        ImageSnapshot base = state.get();
+        while (base != null) {
+            ImageSnapshot updated = change.apply(base);
+            if (state.compareAndSet(base, updated)) {
+                return updated;
+            }
+            ImageSnapshot latest = state.get();
+            base = base.hasSameSource(latest) ? latest : null;
+        }
+        return null;
     }
 
-    private int processPixel(int pixel, String effect) {
-        int r = (pixel >> 16) & 0xff;
-        int g = (pixel >> 8) & 0xff;
-        int b = pixel & 0xff;
-
-        switch (effect) {
-            case "grayscale":
-                int gray = (r + g + b) / 3;
-                return (0xff << 24) | (gray << 16) | (gray << 8) | gray;
-
-            case "invert":
-                return (0xff << 24) | ((255 - r) << 16) | ((255 - g) << 8) | (255 - b);
-
-            case "sepia":
-                int tr = (int)(0.393 * r + 0.769 * g + 0.189 * b);
-                int tg = (int)(0.349 * r + 0.686 * g + 0.168 * b);
-                int tb = (int)(0.272 * r + 0.534 * g + 0.131 * b);
-                tr = Math.min(255, tr);
-                tg = Math.min(255, tg);
-                tb = Math.min(255, tb);
-                return (0xff << 24) | (tr << 16) | (tg << 8) | tb;
-
-            default:
-                return pixel; // Brak przetwarzania
+    // Pokazujemy najnowszą opublikowaną wersję (wątek GUI) - starsze wyniki, które dotarły później, nie nadpisują nowszych
+    private void showLatest() {
+        ImageSnapshot snapshot = state.get();
+        if (snapshot != null) {
+            imageView.setImage(snapshot.getImage());
         }
     }
 
@@ -0,0 +1,299 @@
+// Przetwarzanie wsadowe wielu plików jako potok trzech etapów: dekodowanie -> efekty -> kodowanie. Każdy etap ma
+// własną pulę wątków, a etapy łączą kolejki o ograniczonej pojemności. Gdy zapis nie nadąża, kolejka się zapełnia
+// i dekodowanie czeka (put blokuje), więc w pamięci jest naraz co najwyżej kilka obrazów niezależnie od liczby plików.
+// Błąd jednego pliku nie przerywa całego potoku - plik jest liczony jako nieudany.
+// W trybie runWithIoThreads czytanie i zapis bajtów pliku (np. z wolnego dysku sieciowego) odbywa się na wątkach
+// puli Workers.io(), a dekodowanie, efekty i kodowanie na ograniczonej puli obliczeniowej.
+
+package imaging;
+
+import javax.imageio.ImageIO;
+import javax.imageio.stream.ImageOutputStream;
+import javax.imageio.stream.MemoryCacheImageInputStream;
+import javax.imageio.stream.MemoryCacheImageOutputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class BatchPipeline {
+    private final EffectChain chain;
+    private final int decoders;
+    private final int workers;
+    private final int encoders;
+    private final int queueCapacity;
+    private final PrintStream log;
+
+    public BatchPipeline(List<EffectStep> steps, int decoders, int workers, int encoders, int queueCapacity, PrintStream log) {
+        if (decoders < 1 || workers < 1 || encoders < 1 || queueCapacity < 1) {
+            throw new IllegalArgumentException("Liczba wątków i pojemność kolejek muszą być dodatnie");
+        }
+        this.chain = EffectChain.of(steps); // Łańcuch efektów punktowych to jedno przejście po pikselach
+        this.decoders = decoders;
+        this.workers = workers;
+        this.encoders = encoders;
+        this.queueCapacity = queueCapacity;
+        this.log = log;
+    }
+
+    // Przetwarzamy pliki inputs i zapisujemy wyniki pod tą samą nazwą w katalogu outputDir; zwracamy liczbę
+    // plików, których nie udało się przetworzyć
+    public int run(List<Path> inputs, Path outputDir) throws InterruptedException {
+        BlockingQueue<Item> decoded = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<Item> processed = new ArrayBlockingQueue<>(queueCapacity);
+        AtomicInteger next = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+
+        ExecutorService decodePool = Executors.newFixedThreadPool(decoders);
+        ExecutorService workPool = Executors.newFixedThreadPool(workers);
+        ExecutorService encodePool = Executors.newFixedThreadPool(encoders);
+        try {
+            for (int i = 0; i < decoders; i++) {
+                decodePool.execute(() -> decode(inputs, next, decoded, failed));
+            }
+            for (int i = 0; i < workers; i++) {
+                workPool.execute(() -> process(decoded, processed, failed));
+            }
+            for (int i = 0; i < encoders; i++) {
+                encodePool.execute(() -> encode(processed, outputDir, failed));
+            }
+
+            // Kolejne etapy kończymy znacznikami END dopiero wtedy, gdy poprzedni etap oddał wszystkie obrazy
+            awaitStage(decodePool);
+            for (int i = 0; i < workers; i++) {
+                decoded.put(Item.END);
+            }
+            awaitStage(workPool);
+            for (int i = 0; i < encoders; i++) {
+                processed.put(Item.END);
+            }
+            awaitStage(encodePool);
+        } finally {
+            decodePool.shutdownNow();
+            workPool.shutdownNow();
+            encodePool.shutdownNow();
+        }
+        return failed.get();
+    }
+
+    // Tryb z oddzielnym I/O: każdy plik to łańcuch zadań czytanie (I/O) -> dekodowanie, efekty, kodowanie (CPU,
+    // tyle wątków, ile workers) -> zapis (I/O). Zdekodowanych obrazów jest najwyżej tyle, ile wątków obliczeniowych,
+    // a poza nimi w pamięci są skompresowane bajty plików w toku - ich ilość ogranicza semafor liczony w kilobajtach
+    // (maxBytesInFlight). Plik zajmuje tyle kilobajtów, ile ma na dysku (wynik ma zwykle podobny rozmiar); plik większy
+    // niż cały limit zajmuje cały limit, czyli jest przetwarzany sam.
+    public int runWithIoThreads(List<Path> inputs, Path outputDir, long maxBytesInFlight) throws InterruptedException {
+        int budget = (int) Math.min(Integer.MAX_VALUE, Math.max(1, maxBytesInFlight >> 10));
+        Semaphore inFlight = new Semaphore(budget);
+        AtomicInteger failed = new AtomicInteger();
+        ExecutorService io = Workers.io();
+        ExecutorService cpu = Executors.newFixedThreadPool(workers);
+        List<CompletableFuture<Void>> files = new ArrayList<>();
+        try {
+            for (Path input : inputs) {
+                int kilobytes = (int) Math.min(budget, Math.max(1, sizeOf(input) >> 10));
+                inFlight.acquire(kilobytes); // Czekamy, aż zapisane pliki zwolnią dość miejsca
+                Path output = outputDir.resolve(input.getFileName());
+                CompletableFuture<Void> file = CompletableFuture
+                        .supplyAsync(() -> readBytes(input), io)
+                        .thenApplyAsync(bytes -> transcode(bytes, formatOf(output)), cpu)
+                        .thenAcceptAsync(bytes -> writeBytes(output, bytes), io)
+                        .handle((ignored, e) -> {
+                            inFlight.release(kilobytes);
+                            if (e != null) {
+                                fail(input, unwrap(e), failed);
+                            } else {
+                                log.println(input + " -> " + output);
+                            }
+                            return null;
+                        });
+                files.add(file);
+            }
+            CompletableFuture.allOf(files.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            cpu.shutdownNow();
+        }
+        return failed.get();
+    }
+
+    // Rozmiar pliku do limitu danych w toku; plik, którego nie da się odczytać, i tak zaraz zgłosi błąd przy czytaniu
+    private static long sizeOf(Path input) {
+        try {
+            return Files.size(input);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static byte[] readBytes(Path input) {
+        try {
+            return Files.readAllBytes(input);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static void writeBytes(Path output, byte[] bytes) {
+        try {
+            Files.write(output, bytes);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Dekodowanie, efekty i kodowanie w pamięci - sama praca procesora, bez dostępu do dysku (strumienie z buforem
+    // w pamięci, bo domyślnie ImageIO buforuje strumienie w plikach tymczasowych)
+    private byte[] transcode(byte[] bytes, String format) {
+        try {
+            BufferedImage image = ImageIO.read(new MemoryCacheImageInputStream(new ByteArrayInputStream(bytes)));
+            if (image == null) {
+                throw new IOException("Nieobsługiwany format pliku");
+            }
+            image = applyEffects(PixelEngine.toIntArgb(image));
+            ByteArrayOutputStream encoded = new ByteArrayOutputStream(bytes.length);
+            try (ImageOutputStream output = new MemoryCacheImageOutputStream(encoded)) {
+                if (!ImageIO.write(forFormat(image, format), format, output)) {
+                    throw new IOException("Brak kodera dla formatu " + format);
+                }
+            }
+            return encoded.toByteArray();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Zadania CompletableFuture opakowują wyjątki - do dziennika wypisujemy pierwotną przyczynę
+    private static Exception unwrap(Throwable e) {
+        Throwable cause = e;
+        while ((cause instanceof CompletionException || cause instanceof UncheckedIOException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause instanceof Exception ? (Exception) cause : new RuntimeException(cause);
+    }
+
+    private static void awaitStage(ExecutorService stage) throws InterruptedException {
+        stage.shutdown();
+        while (!stage.awaitTermination(1, TimeUnit.MINUTES)) {
+            // Czekamy dalej - pojedynczy bardzo duży plik może być przetwarzany dłużej niż minutę
+        }
+    }
+
+    private void decode(List<Path> inputs, AtomicInteger next, BlockingQueue<Item> decoded, AtomicInteger failed) {
+        try {
+            for (int index = next.getAndIncrement(); index < inputs.size(); index = next.getAndIncrement()) {
+                Path input = inputs.get(index);
+                try {
+                    BufferedImage image = ImageIO.read(input.toFile());
+                    if (image == null) {
+                        throw new IOException("Nieobsługiwany format pliku");
+                    }
+                    decoded.put(new Item(input, PixelEngine.toIntArgb(image)));
+                } catch (IOException | RuntimeException e) {
+                    fail(input, e, failed);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Obrazy są przetwarzane równolegle między plikami, więc każdy z nich liczymy w jednym wątku i w miejscu
+    // Wyjątek z efektu kończy tylko ten plik - gdyby zakończył wątek, dekodery czekałyby w nieskończoność na miejsce
+    // w kolejce decoded
+    private void process(BlockingQueue<Item> decoded, BlockingQueue<Item> processed, AtomicInteger failed) {
+        try {
+            for (Item item = decoded.take(); item != Item.END; item = decoded.take()) {
+                BufferedImage result;
+                try {
+                    result = applyEffects(item.image);
+                } catch (RuntimeException e) {
+                    fail(item.input, e, failed);
+                    continue;
+                }
+                processed.put(new Item(item.input, result));
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    // Efekty punktowe liczymy w miejscu; efekty przestrzenne potrzebują nienaruszonych sąsiednich pikseli, więc wynik
+    // powstaje w nowym obrazie
+    private BufferedImage applyEffects(BufferedImage image) {
+        if (chain.isPointwise()) {
+            PixelEngine.applyInPlace(image, chain.getKernel());
+            return image;
+        }
+        return chain.render(image);
+    }
+
+    private void encode(BlockingQueue<Item> processed, Path outputDir, AtomicInteger failed) {
+        try {
+            for (Item item = processed.take(); item != Item.END; item = processed.take()) {
+                Path output = outputDir.resolve(item.input.getFileName());
+                try {
+                    String format = formatOf(output);
+                    if (!ImageIO.write(forFormat(item.image, format), format, output.toFile())) {
+                        throw new IOException("Brak kodera dla formatu " + format);
+                    }
+                    log.println(item.input + " -> " + output);
+                } catch (IOException | RuntimeException e) {
+                    fail(item.input, e, failed);
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void fail(Path input, Exception e, AtomicInteger failed) {
+        failed.incrementAndGet();
+        log.println(input + ": błąd - " + e.getMessage());
+    }
+
+    private static String formatOf(Path file) {
+        String name = file.getFileName().toString();
+        int dot = name.lastIndexOf('.');
+        return dot < 0 ? "png" : name.substring(dot + 1).toLowerCase();
+    }
+
+    // JPEG i BMP nie obsługują kanału alfa, a wyniki efektów i tak są nieprzezroczyste
+    private static BufferedImage forFormat(BufferedImage image, String format) {
+        if (!"jpg".equals(format) && !"jpeg".equals(format) && !"bmp".equals(format)) {
+            return image;
+        }
+        BufferedImage rgb = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g = rgb.createGraphics();
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return rgb;
+    }
+
+    private static final class Item {
+        static final Item END = new Item(null, null); // Znacznik końca danych dla wątków następnego etapu
+
+        final Path input;
+        final BufferedImage image;
+
+        Item(Path input, BufferedImage image) {
+            this.input = input;
+            this.image = image;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+// Sposób uzupełniania pikseli spoza obrazu przy splocie: CLAMP powtarza skrajny piksel, REFLECT odbija obraz
+// lustrzanie (ze skrajnym pikselem włącznie), WRAP zawija obraz cyklicznie.
+
+package imaging;
+
+public enum BorderMode {
+    CLAMP, REFLECT, WRAP;
+
+    // Indeks piksela wewnątrz zakresu 0..n-1, który zastępuje piksel o indeksie i
+    public int map(int i, int n) {
+        if (i >= 0 && i < n) {
+            return i;
+        }
+        switch (this) {
+            case CLAMP:
+                return i < 0 ? 0 : n - 1;
+            case WRAP:
+                return Math.floorMod(i, n);
+            default:
+                int m = Math.floorMod(i, 2 * n);
+                return m < n ? m : 2 * n - 1 - m;
+        }
+    }
+}
@@ -0,0 +1,66 @@
+// Pula buforów pikseli int[] pogrupowanych według długości. Bufory wyników anulowanych zadań i wyników, które przestały
+// być wyświetlane, wracają do puli, więc kolejne przeliczenie tego samego obrazu (np. po ponownym ruchu suwaka) nie
+// alokuje nowych megabajtów. Łączny rozmiar wolnych buforów jest ograniczony - nadmiarowe bufory zostawiamy dla GC.
+
+package imaging;
+
+import java.util.Deque;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class BufferPool {
+    private static final BufferPool SHARED = new BufferPool(Runtime.getRuntime().maxMemory() / 4);
+
+    private final long maxFreeBytes; // Górna granica pamięci zajmowanej przez wolne bufory
+    private final ConcurrentHashMap<Integer, Deque<int[]>> free = new ConcurrentHashMap<>();
+    private final AtomicLong freeBytes = new AtomicLong();
+    private final AtomicLong allocations = new AtomicLong(); // Liczba buforów, których nie było w puli
+
+    public BufferPool(long maxFreeBytes) {
+        this.maxFreeBytes = maxFreeBytes;
+    }
+
+    public static BufferPool shared() {
+        return SHARED;
+    }
+
+    // Bufor o podanej długości - z puli, jeśli jest wolny, w przeciwnym razie nowy. Zawartość bufora z puli jest
+    // przypadkowa, więc wywołujący musi zapisać wszystkie piksele.
+    public int[] acquire(int length) {
+        Deque<int[]> buffers = free.get(length);
+        int[] buffer = buffers != null ? buffers.pollFirst() : null;
+        if (buffer != null) {
+            freeBytes.addAndGet(-bytes(buffer));
+            return buffer;
+        }
+        allocations.incrementAndGet();
+        return new int[length];
+    }
+
+    // Oddajemy bufor, którego nikt już nie używa (nie wolno go potem czytać ani zapisywać). Jeśli pula jest pełna,
+    // bufor jest po prostu porzucany.
+    public void release(int[] buffer) {
+        long size = bytes(buffer);
+        long current;
+        do {
+            current = freeBytes.get();
+            if (current + size > maxFreeBytes) {
+                return;
+            }
+        } while (!freeBytes.compareAndSet(current, current + size));
+        free.computeIfAbsent(buffer.length, length -> new ConcurrentLinkedDeque<>()).offerFirst(buffer);
+    }
+
+    public long getFreeBytes() {
+        return freeBytes.get();
+    }
+
+    public long getAllocations() {
+        return allocations.get();
+    }
+
+    private static long bytes(int[] buffer) {
+        return (long) buffer.length * Integer.BYTES;
+    }
+}
@@ -0,0 +1,374 @@
+// Kernele splotu dla efektów przestrzennych. Każdy kernel jest tworzony dla konkretnego rozmiaru obrazu i liczy
+// całe wiersze z zakresu [from, to), czytając dowolne wiersze tablicy src - sąsiednie wiersze pasa (margines, "halo")
+// są więc dostępne bez kopiowania, o ile src i dst to różne tablice. Piksele spoza obrazu uzupełnia BorderMode.
+// Splot rozdzielny (np. Gaussa) to dwa przebiegi: wierszami (horizontal) i kolumnami (vertical), czyli 2r + 1
+// zamiast (2r + 1)^2 mnożeń na piksel. Duże rozmycia Gaussa przybliżamy kilkoma rozmyciami pudełkowymi liczonymi
+// sumą bieżącą - koszt na piksel nie zależy wtedy od promienia.
+// Wynik jest nieprzezroczysty, tak jak w efektach punktowych.
+
+package imaging;
+
+public final class Convolution {
+    private static final int OPAQUE = 0xff000000;
+    // Wagi masek, które mogą być ujemne (wyostrzanie), trzymamy z 12 bitami ułamka - przy sile do kilkunastu suma
+    // ważona 9 pikseli mieści się w int
+    private static final int FRACTION_BITS = 12;
+    private static final int ONE = 1 << FRACTION_BITS;
+
+    private Convolution() {
+    }
+
+    // Wagi rozkładu Gaussa o odchyleniu sigma, obcięte do promienia ceil(3 sigma) i znormalizowane do sumy 1
+    public static float[] gaussianWeights(double sigma) {
+        int radius = Math.max(1, (int) Math.ceil(3 * sigma));
+        double[] exact = new double[2 * radius + 1];
+        double sum = 0;
+        for (int k = -radius; k <= radius; k++) {
+            exact[k + radius] = Math.exp(-k * k / (2 * sigma * sigma));
+            sum += exact[k + radius];
+        }
+        float[] weights = new float[exact.length];
+        for (int i = 0; i < weights.length; i++) {
+            weights[i] = (float) (exact[i] / sum);
+        }
+        return weights;
+    }
+
+    // Promienie count kolejnych rozmyć pudełkowych, których złożenie ma tę samą wariancję co rozmycie Gaussa
+    // o odchyleniu sigma (W. Jarosz, "Fast Image Convolutions"): boki pudełek to dwie sąsiednie liczby nieparzyste
+    public static int[] boxRadiiForGaussian(double sigma, int count) {
+        double idealSize = Math.sqrt(12 * sigma * sigma / count + 1);
+        int lower = (int) Math.floor(idealSize);
+        if (lower % 2 == 0) {
+            lower--;
+        }
+        int upper = lower + 2;
+        double idealLowerCount = (12 * sigma * sigma - count * lower * lower - 4.0 * count * lower - 3 * count)
+                / (-4.0 * lower - 4);
+        int lowerCount = (int) Math.round(idealLowerCount);
+        int[] radii = new int[count];
+        for (int i = 0; i < count; i++) {
+            radii[i] = ((i < lowerCount ? lower : upper) - 1) / 2;
+        }
+        return radii;
+    }
+
+    // Splot wierszy z wagami weights (długość nieparzysta, środek w weights.length / 2)
+    public static PixelEngine.Kernel horizontal(float[] weights, int width, int height, BorderMode border) {
+        int[] fixed = fixedPoint(weights);
+        int radius = weights.length / 2;
+        return (src, dst, from, to) -> {
+            int[] row = new int[width + 2 * radius];
+            for (int y = from / width; y < to / width; y++) {
+                padRow(src, y * width, width, radius, border, row);
+                int out = y * width;
+                for (int x = 0; x < width; x++) {
+                    long rb = 0;
+                    int g = 0;
+                    for (int k = 0; k < fixed.length; k++) {
+                        int pixel = row[x + k];
+                        int w = fixed[k];
+                        rb += spreadRedBlue(pixel) * w;
+                        g += ((pixel >> 8) & 0xff) * w;
+                    }
+                    dst[out + x] = packFixed(rb, g);
+                }
+            }
+        };
+    }
+
+    // Splot kolumn z wagami weights. Dla każdego wiersza wyniku czytamy 2r + 1 wierszy wejścia równolegle, od lewej
+    // do prawej, więc pamięć jest czytana sekwencyjnie, a nie kolumnami.
+    public static PixelEngine.Kernel vertical(float[] weights, int width, int height, BorderMode border) {
+        int[] fixed = fixedPoint(weights);
+        int radius = weights.length / 2;
+        return (src, dst, from, to) -> {
+            int[] rows = new int[fixed.length];
+            for (int y = from / width; y < to / width; y++) {
+                for (int k = 0; k < fixed.length; k++) {
+                    rows[k] = border.map(y + k - radius, height) * width;
+                }
+                int out = y * width;
+                for (int x = 0; x < width; x++) {
+                    long rb = 0;
+                    int g = 0;
+                    for (int k = 0; k < fixed.length; k++) {
+                        int pixel = src[rows[k] + x];
+                        int w = fixed[k];
+                        rb += spreadRedBlue(pixel) * w;
+                        g += ((pixel >> 8) & 0xff) * w;
+                    }
+                    dst[out + x] = packFixed(rb, g);
+                }
+            }
+        };
+    }
+
+    // Kolejne rozmycia pudełkowe o promieniach radii wzdłuż wierszy. Wiersze są niezależne, więc wszystkie rozmycia
+    // wykonujemy w jednym przebiegu, na kopii wiersza rozdzielonej na składowe.
+    public static PixelEngine.Kernel boxesHorizontal(int[] radii, int width, int height, BorderMode border) {
+        return (src, dst, from, to) -> {
+            int[][] channels = new int[3][width];
+            int[] scratch = new int[width];
+            for (int y = from / width; y < to / width; y++) {
+                int offset = y * width;
+                for (int x = 0; x < width; x++) {
+                    int pixel = src[offset + x];
+                    channels[0][x] = (pixel >> 16) & 0xff;
+                    channels[1][x] = (pixel >> 8) & 0xff;
+                    channels[2][x] = pixel & 0xff;
+                }
+                for (int radius : radii) {
+                    for (int c = 0; c < 3; c++) {
+                        boxRow(channels[c], scratch, width, radius, border);
+                        int[] swap = channels[c];
+                        channels[c] = scratch;
+                        scratch = swap;
+                    }
+                }
+                for (int x = 0; x < width; x++) {
+                    dst[offset + x] = OPAQUE | (channels[0][x] << 16) | (channels[1][x] << 8) | channels[2][x];
+                }
+            }
+        };
+    }
+
+    // Rozmycie pudełkowe kolumn o promieniu radius. Każdy pas zaczyna od zsumowania 2r + 1 wierszy wokół swojego
+    // pierwszego wiersza (to jest jego margines), a potem przesuwa okno o wiersz: dodaje wiersz wchodzący i odejmuje
+    // wychodzący.
+    public static PixelEngine.Kernel boxVertical(int radius, int width, int height, BorderMode border) {
+        int reciprocal = reciprocal(2 * radius + 1);
+        return (src, dst, from, to) -> {
+            int fromRow = from / width;
+            int[] r = new int[width];
+            int[] g = new int[width];
+            int[] b = new int[width];
+            for (int k = -radius; k <= radius; k++) {
+                addRow(src, border.map(fromRow + k, height) * width, width, r, g, b, 1);
+            }
+            for (int y = fromRow; y < to / width; y++) {
+                int out = y * width;
+                for (int x = 0; x < width; x++) {
+                    dst[out + x] = OPAQUE | (average(r[x], reciprocal) << 16) | (average(g[x], reciprocal) << 8)
+                            | average(b[x], reciprocal);
+                }
+                addRow(src, border.map(y + radius + 1, height) * width, width, r, g, b, 1);
+                addRow(src, border.map(y - radius, height) * width, width, r, g, b, -1);
+            }
+        };
+    }
+
+    // Splot z maską 3x3 (weights wierszami, od lewego górnego rogu), w arytmetyce stałoprzecinkowej z 12 bitami
+    // ułamka. Poza obraz sięgają tylko skrajne kolumny, więc BorderMode pytamy tylko o nie, a maskę rozpisujemy na
+    // dziewięć odczytów o stałych przesunięciach.
+    public static PixelEngine.Kernel convolve3x3(float[] weights, int width, int height, BorderMode border) {
+        if (weights.length != 9) {
+            throw new IllegalArgumentException("Maska 3x3 musi mieć 9 wag");
+        }
+        int[] fixed = new int[9];
+        for (int i = 0; i < 9; i++) {
+            fixed[i] = Math.round(weights[i] * ONE);
+        }
+        int w0 = fixed[0];
+        int w1 = fixed[1];
+        int w2 = fixed[2];
+        int w3 = fixed[3];
+        int w4 = fixed[4];
+        int w5 = fixed[5];
+        int w6 = fixed[6];
+        int w7 = fixed[7];
+        int w8 = fixed[8];
+        int first = border.map(-1, width);
+        int last = border.map(width, width);
+        return (src, dst, from, to) -> {
+            for (int y = from / width; y < to / width; y++) {
+                int above = border.map(y - 1, height) * width;
+                int row = y * width;
+                int below = border.map(y + 1, height) * width;
+                for (int x = 0; x < width; x++) {
+                    int left = x > 0 ? x - 1 : first;
+                    int right = x < width - 1 ? x + 1 : last;
+                    int r = 0;
+                    int g = 0;
+                    int b = 0;
+                    int pixel = src[above + left];
+                    r += w0 * ((pixel >> 16) & 0xff);
+                    g += w0 * ((pixel >> 8) & 0xff);
+                    b += w0 * (pixel & 0xff);
+                    pixel = src[above + x];
+                    r += w1 * ((pixel >> 16) & 0xff);
+                    g += w1 * ((pixel >> 8) & 0xff);
+                    b += w1 * (pixel & 0xff);
+                    pixel = src[above + right];
+                    r += w2 * ((pixel >> 16) & 0xff);
+                    g += w2 * ((pixel >> 8) & 0xff);
+                    b += w2 * (pixel & 0xff);
+                    pixel = src[row + left];
+                    r += w3 * ((pixel >> 16) & 0xff);
+                    g += w3 * ((pixel >> 8) & 0xff);
+                    b += w3 * (pixel & 0xff);
+                    pixel = src[row + x];
+                    r += w4 * ((pixel >> 16) & 0xff);
+                    g += w4 * ((pixel >> 8) & 0xff);
+                    b += w4 * (pixel & 0xff);
+                    pixel = src[row + right];
+                    r += w5 * ((pixel >> 16) & 0xff);
+                    g += w5 * ((pixel >> 8) & 0xff);
+                    b += w5 * (pixel & 0xff);
+                    pixel = src[below + left];
+                    r += w6 * ((pixel >> 16) & 0xff);
+                    g += w6 * ((pixel >> 8) & 0xff);
+                    b += w6 * (pixel & 0xff);
+                    pixel = src[below + x];
+                    r += w7 * ((pixel >> 16) & 0xff);
+                    g += w7 * ((pixel >> 8) & 0xff);
+                    b += w7 * (pixel & 0xff);
+                    pixel = src[below + right];
+                    r += w8 * ((pixel >> 16) & 0xff);
+                    g += w8 * ((pixel >> 8) & 0xff);
+                    b += w8 * (pixel & 0xff);
+                    dst[row + x] = packScaled(r, g, b);
+                }
+            }
+        };
+    }
+
+    // Operator Sobela na jasności (r + g + b) / 3: wynik to szary obraz z długością gradientu, obciętą do 255. Jasność
+    // wierszy okna liczymy raz na wiersz, a nie osiem razy na piksel.
+    public static PixelEngine.Kernel sobel(int width, int height, BorderMode border) {
+        int first = border.map(-1, width);
+        int last = border.map(width, width);
+        return (src, dst, from, to) -> {
+            // Wiersze jasności z jednym pikselem marginesu po obu stronach
+            int[] top = new int[width + 2];
+            int[] middle = new int[width + 2];
+            int[] bottom = new int[width + 2];
+            for (int y = from / width; y < to / width; y++) {
+                luminanceRow(src, border.map(y - 1, height) * width, width, first, last, top);
+                luminanceRow(src, y * width, width, first, last, middle);
+                luminanceRow(src, border.map(y + 1, height) * width, width, first, last, bottom);
+                int row = y * width;
+                for (int x = 0; x < width; x++) {
+                    int gx = (top[x + 2] + 2 * middle[x + 2] + bottom[x + 2]) - (top[x] + 2 * middle[x] + bottom[x]);
+                    int gy = (bottom[x] + 2 * bottom[x + 1] + bottom[x + 2]) - (top[x] + 2 * top[x + 1] + top[x + 2]);
+                    int magnitude = Math.min(255, (int) Math.sqrt(gx * gx + gy * gy));
+                    dst[row + x] = OPAQUE | (magnitude << 16) | (magnitude << 8) | magnitude;
+                }
+            }
+        };
+    }
+
+    // Maska wyostrzająca: wynik = oryginał + amount * (oryginał - rozmyty). Kernel dostaje jako src obraz rozmyty,
+    // a oryginał original bierze z tablicy podanej przy tworzeniu.
+    public static PixelEngine.Kernel unsharp(int[] original, float amount) {
+        int scaled = Math.round(amount * ONE);
+        return (blurred, dst, from, to) -> {
+            for (int i = from; i < to; i++) {
+                int pixel = original[i];
+                int soft = blurred[i];
+                int r = (pixel >> 16) & 0xff;
+                int g = (pixel >> 8) & 0xff;
+                int b = pixel & 0xff;
+                dst[i] = packScaled(r * ONE + scaled * (r - ((soft >> 16) & 0xff)),
+                        g * ONE + scaled * (g - ((soft >> 8) & 0xff)),
+                        b * ONE + scaled * (b - (soft & 0xff)));
+            }
+        };
+    }
+
+    // Wiersz z marginesem radius pikseli po obu stronach, uzupełnionym według border
+    private static void padRow(int[] src, int offset, int width, int radius, BorderMode border, int[] row) {
+        for (int k = 0; k < radius; k++) {
+            row[k] = src[offset + border.map(k - radius, width)];
+            row[radius + width + k] = src[offset + border.map(width + k, width)];
+        }
+        System.arraycopy(src, offset, row, radius, width);
+    }
+
+    // Średnia z okna 2r + 1 pikseli dla każdego piksela wiersza jednej składowej, liczona sumą bieżącą
+    private static void boxRow(int[] in, int[] out, int width, int radius, BorderMode border) {
+        int reciprocal = reciprocal(2 * radius + 1);
+        int sum = 0;
+        for (int k = -radius; k <= radius; k++) {
+            sum += in[border.map(k, width)];
+        }
+        // Okno wystaje poza wiersz tylko na jego początku i końcu; w środku przesuwamy je bez BorderMode
+        int inner = Math.min(width, radius);
+        int innerEnd = Math.max(inner, width - radius - 1);
+        int x = 0;
+        for (; x < inner; x++) {
+            out[x] = average(sum, reciprocal);
+            sum += in[border.map(x + radius + 1, width)] - in[border.map(x - radius, width)];
+        }
+        for (; x < innerEnd; x++) {
+            out[x] = average(sum, reciprocal);
+            sum += in[x + radius + 1] - in[x - radius];
+        }
+        for (; x < width; x++) {
+            out[x] = average(sum, reciprocal);
+            sum += in[border.map(x + radius + 1, width)] - in[border.map(x - radius, width)];
+        }
+    }
+
+    private static void addRow(int[] src, int offset, int width, int[] r, int[] g, int[] b, int sign) {
+        for (int x = 0; x < width; x++) {
+            int pixel = src[offset + x];
+            r[x] += sign * ((pixel >> 16) & 0xff);
+            g[x] += sign * ((pixel >> 8) & 0xff);
+            b[x] += sign * (pixel & 0xff);
+        }
+    }
+
+    // 1/size w arytmetyce stałoprzecinkowej 0.16 - dzielenie sumy okna zastępujemy mnożeniem
+    private static int reciprocal(int size) {
+        return (65536 + size / 2) / size;
+    }
+
+    private static int average(int sum, int reciprocal) {
+        return Math.min(255, (sum * reciprocal + 0x8000) >>> 16);
+    }
+
+    private static void luminanceRow(int[] src, int offset, int width, int first, int last, int[] row) {
+        for (int x = 0; x < width; x++) {
+            int pixel = src[offset + x];
+            row[x + 1] = (((pixel >> 16) & 0xff) + ((pixel >> 8) & 0xff) + (pixel & 0xff)) / 3;
+        }
+        row[0] = row[first + 1];
+        row[width + 1] = row[last + 1];
+    }
+
+    // Wagi w arytmetyce stałoprzecinkowej 0.16 o sumie dokładnie 65536 (resztę z zaokrągleń dostaje środkowa waga).
+    // Wagi Gaussa są dodatnie, więc ważona suma składowej mieści się w 24 bitach.
+    private static int[] fixedPoint(float[] weights) {
+        int[] fixed = new int[weights.length];
+        int sum = 0;
+        for (int k = 0; k < weights.length; k++) {
+            fixed[k] = Math.round(weights[k] * 65536);
+            sum += fixed[k];
+        }
+        fixed[weights.length / 2] += 65536 - sum;
+        return fixed;
+    }
+
+    // Składowe czerwona i niebieska w osobnych połówkach liczby long - jedno mnożenie waży obie naraz
+    private static long spreadRedBlue(int pixel) {
+        return ((long) (pixel & 0xff0000) << 16) | (pixel & 0xff);
+    }
+
+    private static int packFixed(long rb, int g) {
+        int r = (int) (((rb >>> 32) + 0x8000) >>> 16);
+        int b = (int) (((rb & 0xffffffffL) + 0x8000) >>> 16);
+        int green = (g + 0x8000) >>> 16;
+        return OPAQUE | (Math.min(255, r) << 16) | (Math.min(255, green) << 8) | Math.min(255, b);
+    }
+
+    // Składowe pomnożone przez ONE: zaokrąglamy, obcinamy do 0-255 i składamy piksel
+    private static int packScaled(int r, int g, int b) {
+        return OPAQUE | (clampScaled(r) << 16) | (clampScaled(g) << 8) | clampScaled(b);
+    }
+
+    private static int clampScaled(int value) {
+        int v = (value + ONE / 2) >> FRACTION_BITS;
+        return v < 0 ? 0 : Math.min(255, v);
+    }
+}
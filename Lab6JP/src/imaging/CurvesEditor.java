@@ -0,0 +1,237 @@
+// Edytor krzywych tonalnych. Kliknięcie obok krzywej dodaje punkt kontrolny, przeciąganie przesuwa punkt, a kliknięcie
+// prawym przyciskiem usuwa go (skrajne punkty zostają). W tle rysujemy histogram jasności obrazu.
+// Słuchacze dostają powiadomienie przy każdym ruchu punktu; w trakcie przeciągania isAdjusting zwraca true, więc
+// okno może liczyć tylko podgląd, a pełny obraz dopiero po puszczeniu przycisku myszy (jak przy suwaku).
+
+package imaging;
+
+import imaging.effects.Curves;
+
+import javax.swing.*;
+import javax.swing.event.ChangeEvent;
+import javax.swing.event.ChangeListener;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.geom.Line2D;
+import java.awt.geom.Path2D;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class CurvesEditor extends JComponent {
+    private static final int MARGIN = 8; // Odstęp wykresu od krawędzi komponentu, żeby skrajne punkty dało się chwycić
+    private static final int HANDLE = 4; // Połowa boku kwadratu rysowanego w punkcie kontrolnym
+    private static final int GRAB = 8; // Z jakiej odległości (w pikselach ekranu) można chwycić punkt
+
+    private final List<Point> points = new ArrayList<>(); // Punkty kontrolne w poziomach 0-255, posortowane po x
+    private final List<ChangeListener> listeners = new ArrayList<>();
+    private Curves curve;
+    private Histogram histogram;
+    private int dragged = -1; // Indeks przeciąganego punktu
+    private boolean adjusting;
+
+    public CurvesEditor() {
+        setPreferredSize(new Dimension(Histogram.LEVELS + 2 * MARGIN, Histogram.LEVELS + 2 * MARGIN));
+        setOpaque(true);
+        setBackground(new Color(40, 40, 40));
+        setCurve(Curves.identity());
+        MouseAdapter mouse = new MouseAdapter() {
+            @Override
+            public void mousePressed(MouseEvent e) {
+                int index = pointAt(e.getPoint());
+                if (SwingUtilities.isRightMouseButton(e)) {
+                    if (index > 0 && index < points.size() - 1) {
+                        points.remove(index);
+                        curveChanged(false);
+                    }
+                    return;
+                }
+                if (index < 0) {
+                    index = insertPoint(toLevel(e.getX(), true), toLevel(e.getY(), false));
+                    if (index < 0) {
+                        return;
+                    }
+                }
+                dragged = index;
+                adjusting = true;
+                curveChanged(true);
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (dragged >= 0) {
+                    movePoint(dragged, toLevel(e.getX(), true), toLevel(e.getY(), false));
+                    curveChanged(true);
+                }
+            }
+
+            @Override
+            public void mouseReleased(MouseEvent e) {
+                if (dragged >= 0) {
+                    dragged = -1;
+                    adjusting = false;
+                    curveChanged(false);
+                }
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+    }
+
+    public Curves getCurve() {
+        return curve;
+    }
+
+    // Ustawiamy krzywą bez powiadamiania słuchaczy (np. krzywą ostatniego kroku potoku przy otwarciu okna)
+    public void setCurve(Curves curve) {
+        int[] xs = curve.getXs();
+        int[] ys = curve.getYs();
+        points.clear();
+        for (int i = 0; i < xs.length; i++) {
+            points.add(new Point(xs[i], ys[i]));
+        }
+        this.curve = curve;
+        repaint();
+    }
+
+    // Powrót do krzywej, która niczego nie zmienia
+    public void reset() {
+        setCurve(Curves.identity());
+        curveChanged(false);
+    }
+
+    public void setHistogram(Histogram histogram) {
+        this.histogram = histogram;
+        repaint();
+    }
+
+    // Czy użytkownik właśnie przeciąga punkt
+    public boolean isAdjusting() {
+        return adjusting;
+    }
+
+    public void addChangeListener(ChangeListener listener) {
+        listeners.add(listener);
+    }
+
+    private void curveChanged(boolean adjusting) {
+        this.adjusting = adjusting;
+        int[] xs = new int[points.size()];
+        int[] ys = new int[points.size()];
+        for (int i = 0; i < xs.length; i++) {
+            xs[i] = points.get(i).x;
+            ys[i] = points.get(i).y;
+        }
+        curve = Curves.through(xs, ys);
+        repaint();
+        ChangeEvent event = new ChangeEvent(this);
+        for (ChangeListener listener : new ArrayList<>(listeners)) {
+            listener.stateChanged(event);
+        }
+    }
+
+    // Nowy punkt na pozycji x (jeśli nie ma tam już punktu); zwraca jego indeks albo -1
+    private int insertPoint(int x, int y) {
+        int index = 0;
+        while (index < points.size() && points.get(index).x < x) {
+            index++;
+        }
+        if (index < points.size() && points.get(index).x == x) {
+            return -1;
+        }
+        points.add(index, new Point(x, y));
+        return index;
+    }
+
+    // Punkt przesuwamy tylko między sąsiadów, żeby poziomy wejścia pozostały rosnące
+    private void movePoint(int index, int x, int y) {
+        int min = index > 0 ? points.get(index - 1).x + 1 : 0;
+        int max = index < points.size() - 1 ? points.get(index + 1).x - 1 : 255;
+        points.get(index).setLocation(Math.max(min, Math.min(max, x)), y);
+    }
+
+    private int pointAt(Point screen) {
+        int nearest = -1;
+        double best = GRAB;
+        for (int i = 0; i < points.size(); i++) {
+            Point p = points.get(i);
+            double distance = screen.distance(toScreenX(p.x), toScreenY(p.y));
+            if (distance <= best) {
+                best = distance;
+                nearest = i;
+            }
+        }
+        return nearest;
+    }
+
+    private double plotWidth() {
+        return Math.max(1, getWidth() - 2 * MARGIN);
+    }
+
+    private double plotHeight() {
+        return Math.max(1, getHeight() - 2 * MARGIN);
+    }
+
+    private double toScreenX(double level) {
+        return MARGIN + level * plotWidth() / 255;
+    }
+
+    private double toScreenY(double level) {
+        return MARGIN + (255 - level) * plotHeight() / 255;
+    }
+
+    private int toLevel(int screen, boolean horizontal) {
+        double level = horizontal ? (screen - MARGIN) * 255 / plotWidth() : 255 - (screen - MARGIN) * 255 / plotHeight();
+        return (int) Math.max(0, Math.min(255, Math.round(level)));
+    }
+
+    @Override
+    protected void paintComponent(Graphics graphics) {
+        Graphics2D g = (Graphics2D) graphics.create();
+        try {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            if (histogram != null && histogram.getTotal() > 0) {
+                long[] counts = histogram.getCounts(Histogram.Channel.LUMINANCE);
+                long max = 1;
+                for (int level = 1; level < counts.length - 1; level++) {
+                    max = Math.max(max, counts[level]);
+                }
+                Path2D shape = new Path2D.Double();
+                shape.moveTo(toScreenX(0), toScreenY(0));
+                for (int level = 0; level < counts.length; level++) {
+                    shape.lineTo(toScreenX(level), toScreenY(Math.min(1, (double) counts[level] / max) * 255));
+                }
+                shape.lineTo(toScreenX(255), toScreenY(0));
+                shape.closePath();
+                g.setColor(new Color(80, 80, 80));
+                g.fill(shape);
+            }
+            g.setColor(new Color(90, 90, 90));
+            for (int i = 0; i <= 4; i++) {
+                double level = i * 255 / 4.0;
+                g.draw(new Line2D.Double(toScreenX(level), toScreenY(0), toScreenX(level), toScreenY(255)));
+                g.draw(new Line2D.Double(toScreenX(0), toScreenY(level), toScreenX(255), toScreenY(level)));
+            }
+            g.draw(new Line2D.Double(toScreenX(0), toScreenY(0), toScreenX(255), toScreenY(255)));
+            Path2D line = new Path2D.Double();
+            line.moveTo(toScreenX(0), toScreenY(curve.level(0)));
+            for (int level = 1; level < Histogram.LEVELS; level++) {
+                line.lineTo(toScreenX(level), toScreenY(curve.level(level)));
+            }
+            g.setColor(Color.WHITE);
+            g.setStroke(new BasicStroke(1.5f));
+            g.draw(line);
+            for (int i = 0; i < points.size(); i++) {
+                Point p = points.get(i);
+                int x = (int) Math.round(toScreenX(p.x));
+                int y = (int) Math.round(toScreenY(p.y));
+                g.setColor(i == dragged ? Color.ORANGE : Color.WHITE);
+                g.fillRect(x - HANDLE, y - HANDLE, 2 * HANDLE, 2 * HANDLE);
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+}
@@ -0,0 +1,245 @@
+// Plan wykonania listy kroków, w której obok efektów punktowych mogą wystąpić efekty przestrzenne. Sąsiednie efekty
+// punktowe są łączone przez FusedKernel w jeden kernel, a każdy efekt przestrzenny jest osobnym odcinkiem z własnymi
+// przebiegami. Łańcuch samych efektów punktowych wykonujemy dokładnie tak jak wcześniej - jednym kernelem.
+// Przebiegi dzielimy na pasy wierszy TileExecutor; pas efektu przestrzennego czyta także wiersze spoza siebie (aż do
+// promienia efektu), dlatego kolejny przebieg zaczyna się dopiero, gdy poprzedni zapisał wszystkie pasy.
+
+package imaging;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+public final class EffectChain {
+    private static final BooleanSupplier NEVER_CANCELLED = () -> false;
+    private static final IntConsumer NO_PROGRESS = percent -> { };
+
+    private final List<Segment> segments;
+
+    private EffectChain(List<Segment> segments) {
+        this.segments = segments;
+    }
+
+    public static EffectChain of(List<EffectStep> steps) {
+        return of(steps, 1);
+    }
+
+    // Łańcuch dla obrazu przeskalowanego o scale względem obrazu, na którym wybrano parametry kroków (np. podgląd na
+    // pomniejszonej kopii) - parametry efektów przestrzennych, takie jak promień rozmycia, skalujemy razem z obrazem
+    public static EffectChain of(List<EffectStep> steps, double scale) {
+        List<Segment> segments = new ArrayList<>();
+        int start = 0;
+        for (int i = 0; i <= steps.size(); i++) {
+            if (i < steps.size() && steps.get(i).getDefinition().isPointwise()) {
+                continue;
+            }
+            if (i > start) {
+                segments.add(new Segment(FusedKernel.compile(steps.subList(start, i)), null, 0));
+            }
+            if (i < steps.size()) {
+                EffectStep step = steps.get(i);
+                if (!(step.getDefinition() instanceof SpatialEffect)) {
+                    throw new IllegalArgumentException("Efekt " + step.getEffect() + " nie jest ani punktowy, ani przestrzenny");
+                }
+                SpatialEffect effect = (SpatialEffect) step.getDefinition();
+                segments.add(new Segment(null, effect, effect.scaleParameter(step.getParameter(), scale)));
+            }
+            start = i + 1;
+        }
+        return new EffectChain(Collections.unmodifiableList(segments));
+    }
+
+    public boolean isEmpty() {
+        return segments.isEmpty();
+    }
+
+    // Czy cały łańcuch to jeden kernel punktowy (pusty łańcuch też - to przekształcenie tożsamościowe)
+    public boolean isPointwise() {
+        return segments.isEmpty() || (segments.size() == 1 && segments.get(0).kernel != null);
+    }
+
+    // Kernel łańcucha punktowego, który można liczyć w miejscu i na dowolnych fragmentach obrazu
+    public PixelEngine.Kernel getKernel() {
+        if (!isPointwise()) {
+            throw new IllegalStateException("Łańcuch zawiera efekty przestrzenne");
+        }
+        return segments.isEmpty() ? PixelEngine.identity() : segments.get(0).kernel;
+    }
+
+    // O tyle pikseli w każdą stronę trzeba powiększyć fragment obrazu, żeby piksele fragmentu wyszły takie same jak
+    // przy liczeniu całego obrazu (promienie kolejnych efektów przestrzennych się sumują)
+    public int getRadius() {
+        int radius = 0;
+        for (Segment segment : segments) {
+            if (segment.effect != null) {
+                radius += segment.effect.getRadius(segment.parameter);
+            }
+        }
+        return radius;
+    }
+
+    // Nowy obraz z wynikiem łańcucha liczony w bieżącym wątku (np. gdy równolegle przetwarzamy wiele plików)
+    public BufferedImage render(BufferedImage source) {
+        return render(source, null, NEVER_CANCELLED, NO_PROGRESS, null);
+    }
+
+    public BufferedImage render(BufferedImage source, TileExecutor executor) {
+        return render(source, executor, NEVER_CANCELLED, NO_PROGRESS, null);
+    }
+
+    // Nowy obraz z wynikiem łańcucha liczony na pasach wierszy executor (null - w bieżącym wątku). Postęp obejmuje
+    // wszystkie przebiegi, a do bands trafiają tylko pasy ostatniego przebiegu, który zapisuje wynik. Bufory wyniku
+    // i wyników pośrednich pochodzą z puli; po anulowaniu wszystkie do niej wracają, a wynikiem jest null.
+    public BufferedImage render(BufferedImage source, TileExecutor executor, BooleanSupplier cancelled,
+                                IntConsumer progress, TileExecutor.BandListener bands) {
+        if (isPointwise() && executor != null) {
+            return executor.apply(source, getKernel(), cancelled, progress, bands);
+        }
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int[] dst = BufferPool.shared().acquire(width * height);
+        BufferedImage result = PixelEngine.wrap(dst, width, height);
+        TileExecutor.RowsListener rows = bands == null
+                ? null : (fromRow, toRow) -> bands.bandDone(result, new Rectangle(0, fromRow, width, toRow - fromRow));
+        Runner runner = new Runner(executor, width, height, dst, cancelled, progress, rows);
+        if (!runner.run(PixelEngine.readPixels(source))) {
+            BufferPool.shared().release(dst);
+            return null;
+        }
+        return result;
+    }
+
+    private int passCount() {
+        int passes = 0;
+        for (Segment segment : segments) {
+            passes += segment.effect == null ? 1 : segment.effect.getPassCount(segment.parameter);
+        }
+        return Math.max(1, passes);
+    }
+
+    // Odcinek łańcucha: połączone efekty punktowe (kernel) albo jeden efekt przestrzenny z parametrem
+    private static final class Segment {
+        final PixelEngine.Kernel kernel;
+        final SpatialEffect effect;
+        final float parameter;
+
+        Segment(PixelEngine.Kernel kernel, SpatialEffect effect, float parameter) {
+            this.kernel = kernel;
+            this.effect = effect;
+            this.parameter = parameter;
+        }
+    }
+
+    // Wykonanie jednego renderowania: kolejne przebiegi, bufory pośrednie i łączny postęp
+    private final class Runner implements SpatialEffect.Passes {
+        private final TileExecutor executor;
+        private final int width;
+        private final int height;
+        private final int[] result;
+        private final BooleanSupplier cancelled;
+        private final IntConsumer progress;
+        private final TileExecutor.RowsListener rows;
+        private final int totalPasses = passCount();
+        private final AtomicInteger lastPercent = new AtomicInteger();
+        private final List<int[]> scratch = new ArrayList<>(); // Bufory pośrednie bieżącego efektu przestrzennego
+        private int pass;
+
+        Runner(TileExecutor executor, int width, int height, int[] result, BooleanSupplier cancelled,
+               IntConsumer progress, TileExecutor.RowsListener rows) {
+            this.executor = executor;
+            this.width = width;
+            this.height = height;
+            this.result = result;
+            this.cancelled = cancelled;
+            this.progress = progress;
+            this.rows = rows;
+        }
+
+        boolean run(int[] source) {
+            int[] in = source;
+            for (int i = 0; i < segments.size(); i++) {
+                Segment segment = segments.get(i);
+                boolean last = i == segments.size() - 1;
+                int[] out;
+                boolean done;
+                if (segment.effect == null) {
+                    // Efekty punktowe na buforze pośrednim liczymy w miejscu
+                    out = last ? result : (in != source ? in : buffer());
+                    scratch.remove(out);
+                    done = run(in, out, segment.kernel);
+                } else {
+                    out = last ? result : buffer();
+                    scratch.remove(out);
+                    done = segment.effect.render(in, out, width, height, segment.parameter, this);
+                }
+                releaseScratch();
+                if (in != source && in != out) {
+                    BufferPool.shared().release(in);
+                }
+                if (!done) {
+                    if (out != result) {
+                        BufferPool.shared().release(out);
+                    }
+                    return false;
+                }
+                in = out;
+            }
+            if (segments.isEmpty()) {
+                return run(source, result, PixelEngine.identity());
+            }
+            return true;
+        }
+
+        @Override
+        public boolean run(int[] src, int[] dst, PixelEngine.Kernel kernel) {
+            int index = pass++;
+            IntConsumer passProgress = percent -> report((index * 100 + percent) / totalPasses);
+            // Pasy zgłaszamy dopiero wtedy, gdy zapisują ostateczny wynik
+            TileExecutor.RowsListener finalRows = dst == result && index >= totalPasses - 1 ? rows : null;
+            if (executor != null) {
+                return executor.execute(src, dst, width, height, kernel, cancelled, passProgress,
+                        finalRows != null ? finalRows : (fromRow, toRow) -> { });
+            }
+            if (cancelled.getAsBoolean()) {
+                return false;
+            }
+            kernel.apply(src, dst, 0, width * height);
+            if (finalRows != null) {
+                finalRows.rowsDone(0, height);
+            }
+            passProgress.accept(100);
+            return true;
+        }
+
+        @Override
+        public int[] buffer() {
+            int[] buffer = BufferPool.shared().acquire(width * height);
+            scratch.add(buffer);
+            return buffer;
+        }
+
+        private void releaseScratch() {
+            for (int[] buffer : scratch) {
+                BufferPool.shared().release(buffer);
+            }
+            scratch.clear();
+        }
+
+        // Postęp z przebiegów rośnie monotonicznie, także gdy pasy kończą się w innej kolejności
+        private void report(int percent) {
+            int last = lastPercent.get();
+            while (percent > last) {
+                if (lastPercent.compareAndSet(last, percent)) {
+                    progress.accept(percent);
+                    return;
+                }
+                last = lastPercent.get();
+            }
+        }
+    }
+}
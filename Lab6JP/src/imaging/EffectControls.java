@@ -0,0 +1,42 @@
+// Przyciski efektów z rejestru dla okien, które nie mają własnych suwaków. Efekt bez parametru jest stosowany od razu
+// po kliknięciu, a dla efektu z parametrem (np. sigma rozmycia) najpierw pytamy o wartość z jego ParameterRange.
+
+package imaging;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.function.Consumer;
+
+public final class EffectControls {
+    private EffectControls() {
+    }
+
+    // Przycisk "Efekt: ..." przekazujący wybrany krok do onStep (w wątku GUI)
+    public static JButton button(PixelEffect effect, Component parent, Consumer<EffectStep> onStep) {
+        JButton button = new JButton("Efekt: " + effect.getLabel() + (effect.getParameterRange() != null ? "..." : ""));
+        button.addActionListener(e -> {
+            EffectStep step = askForStep(effect, parent);
+            if (step != null) {
+                onStep.accept(step);
+            }
+        });
+        return button;
+    }
+
+    // Krok z parametrem wybranym przez użytkownika albo null, jeśli zrezygnował
+    private static EffectStep askForStep(PixelEffect effect, Component parent) {
+        ParameterRange range = effect.getParameterRange();
+        if (range == null) {
+            return EffectStep.of(effect);
+        }
+        // Krok o długości ok. 1/100 zakresu, ale nie mniejszy niż 0.1
+        double stepSize = Math.max(0.1, Math.pow(10, Math.floor(Math.log10((range.getMax() - range.getMin()) / 10.0))));
+        JSpinner spinner = new JSpinner(new SpinnerNumberModel(range.getDefaultValue(), range.getMin(), range.getMax(), stepSize));
+        int answer = JOptionPane.showConfirmDialog(parent, new Object[]{range.getLabel() + ":", spinner},
+                effect.getLabel(), JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE);
+        if (answer != JOptionPane.OK_OPTION) {
+            return null;
+        }
+        return EffectStep.of(effect.getName(), ((Number) spinner.getValue()).floatValue());
+    }
+}
@@ -0,0 +1,449 @@
+// Nieniszczący potok efektów: niezmieniany obraz źródłowy i uporządkowana lista kroków. Wyniki kroków są
+// zapamiętywane, więc zmiana kroku N wymaga przeliczenia tylko kroków od N w górę, a cofnięcie efektu nie wymaga
+// ponownego wczytywania pliku z dysku.
+// Po włączeniu setRecycling wyniki, które przestały być potrzebne, wracają do BufferPool i służą jako bufory kolejnych
+// przeliczeń (ping-pong: jeden bufor jest wyświetlany, w drugi liczymy następny wynik), więc w czasie edycji potok
+// prawie nie alokuje nowych obrazów.
+// Z setCache wyniki zatwierdzonych kroków (dodanych przez add, a nie zmienianych suwakiem przez set/replaceOrAdd) trafiają
+// też do RenderCache wspólnego dla potoków, więc powrót do łańcucha efektów liczonego już wcześniej dla tego samego
+// obrazu (także po cofnięciu kroku albo ponownym wczytaniu pliku) nic nie kosztuje. Obraz z pamięci podręcznej potok
+// tylko wypożycza: zamiast oddać go do BufferPool, zwraca go pamięci podręcznej, która odda bufor do puli dopiero wtedy,
+// gdy wynik wypadnie z LRU i nie używa go żaden potok.
+// Potok obrazu, który zastępuje nowy, trzeba zamknąć (close): zwalnia to kafelki pełnej rozdzielczości (plik tymczasowy
+// i bufory poza stertą) i oddaje pamięci podręcznej wypożyczone wyniki.
+
+package imaging;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+public final class EffectPipeline implements AutoCloseable {
+    private static final BooleanSupplier NEVER_CANCELLED = () -> false;
+    private static final IntConsumer NO_PROGRESS = percent -> { };
+
+    private final BufferedImage source; // Obraz źródłowy - nigdy go nie modyfikujemy
+    private final ImageSource imageSource; // Plik, z którego można doczytać fragmenty w pełnej rozdzielczości (może być null)
+    private final List<EffectStep> steps = new ArrayList<>();
+    private final List<BufferedImage> results = new ArrayList<>(); // Wyniki kolejnych kroków (null - do przeliczenia)
+    private final List<Boolean> adjusted = new ArrayList<>(); // Czy krok zmieniano przez set (np. suwakiem)
+    private int version; // Zwiększany przy każdej zmianie listy kroków
+    private TiledImage fullResolution; // Kafelki pliku w pełnej rozdzielczości, dekodowane przy pierwszym użyciu
+    private RenderedTiles renderedTiles; // Kafelki wyniku łańcucha punktowego w pełnej rozdzielczości
+    private boolean recycling;
+    private final List<BufferedImage> retired = new ArrayList<>(); // Wyniki usunięte z pamięci podręcznej
+    private BufferedImage lastReturned; // Ostatni wynik oddany wywołującemu (zwykle właśnie wyświetlany)
+    private BufferedImage previousReturned; // Wynik oddany wcześniej - może być jeszcze wyświetlany, jeśli ostatni odrzucono
+    private RenderCache cache; // Wspólna pamięć podręczna wyników (null - tylko wyniki kroków tego potoku)
+    private Long fingerprint; // Odcisk obrazu źródłowego dla kluczy RenderCache, liczony przy pierwszym użyciu
+    // Obrazy wypożyczone z RenderCache (zapisane tam przez ten potok albo z niego pobrane)
+    private final Set<BufferedImage> borrowed = Collections.newSetFromMap(new IdentityHashMap<>());
+    private boolean closed;
+
+    // Pomniejszona kopia (proxy) obrazu wejściowego dla podglądu na żywo - zostaje ta sama przez cały ruch suwaka
+    private BufferedImage proxyInput;
+    private Rectangle proxyRegion;
+    private Dimension proxySize;
+    private BufferedImage proxy;
+
+    public EffectPipeline(BufferedImage source) {
+        this(source, null);
+    }
+
+    // Potok dla obrazu wczytanego z pliku - source może być wersją pomniejszoną przez podpróbkowanie
+    public EffectPipeline(BufferedImage source, ImageSource imageSource) {
+        this.source = PixelEngine.toIntArgb(source);
+        this.imageSource = imageSource;
+    }
+
+    public BufferedImage getSource() {
+        return source;
+    }
+
+    public ImageSource getImageSource() {
+        return imageSource;
+    }
+
+    // Odzyskiwanie buforów wyników. Można je włączyć tylko wtedy, gdy wywołujący używa wyników po kolei: wyświetla
+    // wynik render/renderPreview i przestaje używać poprzedniego, zanim poprosi o następny (np. przez RenderScheduler).
+    // Bufor wyniku sprzed dwóch zwróconych jest wtedy oddawany do puli - zapas jednego wyniku pozwala wywołującemu
+    // odrzucić nieaktualny wynik bez zdejmowania z ekranu poprzedniego.
+    public synchronized void setRecycling(boolean recycling) {
+        this.recycling = recycling;
+    }
+
+    // Pamięć podręczna wyników wspólna z innymi potokami (null wyłącza)
+    public synchronized void setCache(RenderCache cache) {
+        this.cache = cache;
+    }
+
+    public synchronized List<EffectStep> getSteps() {
+        return Collections.unmodifiableList(new ArrayList<>(steps));
+    }
+
+    public synchronized int size() {
+        return steps.size();
+    }
+
+    // Dodajemy krok na końcu potoku i zwracamy jego indeks
+    public synchronized int add(EffectStep step) {
+        steps.add(step);
+        results.add(null);
+        adjusted.add(false);
+        version++;
+        return steps.size() - 1;
+    }
+
+    // Zamieniamy krok o podanym indeksie; wyniki od tego kroku w górę trzeba przeliczyć
+    public synchronized void set(int index, EffectStep step) {
+        if (steps.get(index).equals(step)) {
+            return;
+        }
+        steps.set(index, step);
+        adjusted.set(index, true); // Wynik pośredniej wartości suwaka nie trafia do RenderCache
+        invalidateFrom(index);
+    }
+
+    // Jeśli ostatni krok jest tym samym efektem (np. kolejne ruchy suwaka nasycenia), zastępujemy go zamiast dokładać nowy
+    public synchronized int replaceOrAdd(EffectStep step) {
+        int last = steps.size() - 1;
+        if (last >= 0 && steps.get(last).getEffect().equals(step.getEffect())) {
+            set(last, step);
+            return last;
+        }
+        int index = add(step);
+        adjusted.set(index, true);
+        return index;
+    }
+
+    public synchronized void remove(int index) {
+        steps.remove(index);
+        adjusted.remove(index);
+        retire(results.remove(index));
+        invalidateFrom(index);
+    }
+
+    // Cofamy ostatni krok; zwracamy false, jeśli potok był pusty
+    public synchronized boolean removeLast() {
+        if (steps.isEmpty()) {
+            return false;
+        }
+        remove(steps.size() - 1);
+        return true;
+    }
+
+    public synchronized void clear() {
+        steps.clear();
+        adjusted.clear();
+        results.forEach(this::retire);
+        results.clear();
+        version++;
+    }
+
+    private void invalidateFrom(int index) {
+        for (int i = index; i < results.size(); i++) {
+            retire(results.set(i, null));
+        }
+        version++;
+    }
+
+    // Metoda zwracająca wynik całego potoku
+    public BufferedImage render() {
+        return render(NEVER_CANCELLED, NO_PROGRESS);
+    }
+
+    // Liczymy tylko kroki po ostatnim zapamiętanym wyniku. Kilka brakujących kroków punktowych jest łączonych przez
+    // EffectChain w jedno przejście po pamięci; zapamiętujemy wtedy tylko wynik ostatniego z nich (ponowne przeliczenie od
+    // wcześniejszego wyniku to i tak jedno przejście). Samo przetwarzanie odbywa się poza blokadą, więc wątek GUI
+    // może w tym czasie zmieniać listę kroków - wtedy wynik nie trafia do pamięci podręcznej. Zwraca null po anulowaniu.
+    public BufferedImage render(BooleanSupplier cancelled, IntConsumer progress) {
+        return render(cancelled, progress, null);
+    }
+
+    // Jak wyżej, a gotowe pasy wyniku są na bieżąco zgłaszane do bands (może być null)
+    public BufferedImage render(BooleanSupplier cancelled, IntConsumer progress, TileExecutor.BandListener bands) {
+        RenderCache shared = getCache();
+        Pending work = shared != null ? fromCache(pending(), shared) : pending();
+        if (work.steps.isEmpty()) {
+            return handOut(work.input);
+        }
+        BufferedImage result = EffectChain.of(work.steps).render(work.input, TileExecutor.shared(), cancelled, progress, bands);
+        if (result == null) {
+            return null;
+        }
+        if (shared != null && work.cacheable) {
+            share(shared, work, result);
+        }
+        remember(work, result);
+        return handOut(result);
+    }
+
+    private synchronized RenderCache getCache() {
+        return cache;
+    }
+
+    // Zapamiętujemy wynik ostatniego kroku pracy w potoku, o ile lista kroków się w międzyczasie nie zmieniła
+    private synchronized void remember(Pending work, BufferedImage result) {
+        if (version == work.version && !closed) {
+            retire(results.set(work.start + work.steps.size() - 1, result));
+        }
+    }
+
+    // Szukamy w RenderCache najdłuższego łańcucha kroków, który jest już policzony - od całego potoku w dół do ostatniego
+    // wyniku zapamiętanego w potoku. Trafienie zastępuje wejście pracy, a do policzenia zostają tylko dalsze kroki.
+    private Pending fromCache(Pending work, RenderCache shared) {
+        if (work.steps.isEmpty()) {
+            return work;
+        }
+        long sourceFingerprint = sourceFingerprint();
+        List<RenderCache.Key> candidates = new ArrayList<>();
+        for (int count = work.steps.size(); count > 0; count--) {
+            List<EffectStep> chain = new ArrayList<>(work.prefix);
+            chain.addAll(work.steps.subList(0, count));
+            candidates.add(RenderCache.Key.of(sourceFingerprint, source, chain));
+        }
+        Map.Entry<RenderCache.Key, BufferedImage> hit = shared.find(candidates);
+        if (hit == null) {
+            return work.withFingerprint(sourceFingerprint);
+        }
+        borrow(shared, hit.getValue());
+        int count = hit.getKey().getSteps().size() - work.prefix.size();
+        remember(new Pending(work.input, work.prefix, work.steps.subList(0, count), work.start, work.version,
+                work.cacheable, sourceFingerprint), hit.getValue());
+        return new Pending(hit.getValue(), hit.getKey().getSteps(), new ArrayList<>(work.steps.subList(count, work.steps.size())),
+                work.start + count, work.version, work.cacheable, sourceFingerprint);
+    }
+
+    // Wynik trafia do RenderCache tylko z otwartego potoku: po close właściciel może już zmieniać źródło w miejscu (tryb
+    // edycji w miejscu w Main), a wynik liczony z częściowo zmienionych pikseli nie może trafić pod klucz starego źródła.
+    // Renderowanie, które sprawdza to przed close, skończyło już czytać źródło.
+    private synchronized void share(RenderCache shared, Pending work, BufferedImage result) {
+        if (!closed) {
+            shared.put(work.key(source), result);
+            borrow(shared, result);
+        }
+    }
+
+    // RenderCache liczy każde pobranie obrazu jako osobne użycie, a potok oddaje obraz raz - nadmiarowe użycia od razu zwracamy
+    private synchronized void borrow(RenderCache shared, BufferedImage image) {
+        if (closed || !borrowed.add(image)) {
+            shared.release(image);
+        }
+    }
+
+    private long sourceFingerprint() {
+        synchronized (this) {
+            if (fingerprint != null) {
+                return fingerprint;
+            }
+        }
+        long computed = RenderCache.fingerprint(source); // Poza blokadą - to jedno przejście po całym obrazie
+        synchronized (this) {
+            fingerprint = computed;
+        }
+        return computed;
+    }
+
+    // Szybki podgląd: brakujące kroki liczymy na proxy - fragmencie region ostatniego zapamiętanego wyniku przeskalowanym
+    // do rozmiaru width x height (np. widocznej części etykiety). Koszt zależy od rozmiaru widoku, a nie obrazu.
+    // Wynik podglądu nie trafia do pamięci podręcznej potoku. Promienie efektów przestrzennych skalujemy razem z proxy,
+    // a brzegi fragmentu traktujemy jak brzegi obrazu - w podglądzie to niewidoczne przybliżenie.
+    public BufferedImage renderPreview(Rectangle region, int width, int height) {
+        Pending work = pending();
+        BufferedImage scaled = proxyOf(work.input, region, new Dimension(width, height));
+        if (work.steps.isEmpty()) {
+            return handOut(scaled);
+        }
+        EffectChain chain = EffectChain.of(work.steps, (double) width / region.width);
+        return handOut(chain.render(scaled, TileExecutor.shared()));
+    }
+
+    private synchronized BufferedImage proxyOf(BufferedImage input, Rectangle region, Dimension size) {
+        if (proxy == null || proxyInput != input || !region.equals(proxyRegion) || !size.equals(proxySize)) {
+            proxy = new BufferedImage(size.width, size.height, BufferedImage.TYPE_INT_ARGB);
+            Graphics2D g = proxy.createGraphics();
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            g.setComposite(AlphaComposite.Src);
+            g.drawImage(input, 0, 0, size.width, size.height,
+                    region.x, region.y, region.x + region.width, region.y + region.height, null);
+            g.dispose();
+            proxyInput = input;
+            proxyRegion = new Rectangle(region);
+            proxySize = new Dimension(size);
+        }
+        return proxy;
+    }
+
+    // Fragment wyniku w pełnej rozdzielczości (region we współrzędnych pliku, np. przy powiększeniu widoku). Jeśli obraz
+    // był wczytany z podpróbkowaniem, piksele bierzemy z kafelków pliku trzymanych poza stertą (TiledImage) - każdy
+    // kafelek jest dekodowany raz, a na BufferedImage zamieniamy tylko sam fragment. Wszystkie kroki potoku wykonujemy
+    // na nim w jednym przejściu. Łańcuch samych efektów punktowych liczymy na kafelkach (RenderedTiles): każdy kafelek
+    // wyniku powstaje raz i zostaje poza stertą, więc kolejne fragmenty (przesuwanie widoku) liczą tylko nowe kafelki,
+    // a pamięć nie zależy od wielkości pliku. Dla efektów przestrzennych czytamy fragment powiększony o ich promień (margines),
+    // liczymy go i odcinamy margines, więc piksele przy krawędzi fragmentu są takie same jak w całym obrazie.
+    public BufferedImage renderRegion(Rectangle region) throws IOException {
+        Dimension full = imageSource == null ? new Dimension(source.getWidth(), source.getHeight()) : imageSource.getSize();
+        boolean fullResolutionSource = full.width == source.getWidth();
+        List<EffectStep> all = getSteps();
+        // Parametry kroków wybrano dla obrazu source, a fragment ma rozdzielczość pliku
+        EffectChain chain = EffectChain.of(all, (double) full.width / source.getWidth());
+        if (!fullResolutionSource && !all.isEmpty() && chain.isPointwise()) {
+            return renderedTiles(all, chain.getKernel()).toBufferedImage(region);
+        }
+        int margin = chain.getRadius();
+        Rectangle expanded = new Rectangle(region.x - margin, region.y - margin,
+                region.width + 2 * margin, region.height + 2 * margin).intersection(new Rectangle(full));
+        BufferedImage tile = fullResolutionSource
+                ? source.getSubimage(expanded.x, expanded.y, expanded.width, expanded.height)
+                : fullResolutionTiles().toBufferedImage(expanded, 1);
+        BufferedImage result = all.isEmpty() ? PixelEngine.toIntArgb(tile) : chain.render(tile, TileExecutor.shared());
+        if (expanded.equals(region)) {
+            return result;
+        }
+        return result.getSubimage(region.x - expanded.x, region.y - expanded.y, region.width, region.height);
+    }
+
+    private synchronized TiledImage fullResolutionTiles() throws IOException {
+        if (closed) {
+            throw new IOException("Potok efektów został zamknięty");
+        }
+        if (fullResolution == null) {
+            fullResolution = TiledImage.of(imageSource);
+        }
+        return fullResolution;
+    }
+
+    // Kafelki wyniku dla kroków steps; po zmianie listy kroków liczymy je od nowa
+    private synchronized RenderedTiles renderedTiles(List<EffectStep> steps, PixelEngine.Kernel kernel) throws IOException {
+        TiledImage tiles = fullResolutionTiles();
+        if (renderedTiles == null || !renderedTiles.getSteps().equals(steps)) {
+            closeRenderedTiles();
+            renderedTiles = new RenderedTiles(tiles, steps, kernel);
+        }
+        return renderedTiles;
+    }
+
+    private void closeRenderedTiles() {
+        if (renderedTiles != null) {
+            try {
+                renderedTiles.close();
+            } catch (IOException ignored) {
+                // Plik tymczasowy kafelków i tak zostanie usunięty przy zakończeniu programu (deleteOnExit)
+            }
+            renderedTiles = null;
+        }
+    }
+
+    // Zamykamy potok. Renderowanie, które jeszcze trwa, może się dokończyć, ale jego wynik nie trafi już do pamięci
+    // podręcznej potoku, a żaden bufor nie wróci do puli.
+    @Override
+    public synchronized void close() {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        closeRenderedTiles();
+        if (fullResolution != null) {
+            try {
+                fullResolution.close();
+            } catch (IOException ignored) {
+                // Plik tymczasowy kafelków i tak zostanie usunięty przy zakończeniu programu (deleteOnExit)
+            }
+            fullResolution = null;
+        }
+        if (cache != null) {
+            borrowed.forEach(cache::release);
+        }
+        borrowed.clear();
+        retired.clear();
+    }
+
+    private void retire(BufferedImage image) {
+        if (image != null) {
+            retired.add(image);
+        }
+    }
+
+    // Zwracamy wynik wywołującemu; przy włączonym odzyskiwaniu bufory starszych wyników i wyników usuniętych z pamięci
+    // podręcznej trafiają do puli, o ile nic w potoku ani na ekranie już ich nie używa
+    private synchronized BufferedImage handOut(BufferedImage result) {
+        if (!recycling || closed) {
+            retired.clear();
+            return result;
+        }
+        if (result != lastReturned) {
+            retire(previousReturned);
+            previousReturned = lastReturned;
+            lastReturned = result;
+        }
+        Set<BufferedImage> released = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (BufferedImage image : retired) {
+            if (isReleasable(image) && released.add(image)) {
+                if (borrowed.remove(image)) {
+                    cache.release(image); // Bufor wróci do puli, gdy wynik wypadnie z pamięci podręcznej
+                } else {
+                    BufferPool.shared().release(PixelEngine.data(image));
+                }
+            }
+        }
+        retired.clear();
+        return result;
+    }
+
+    private boolean isReleasable(BufferedImage image) {
+        return image != lastReturned && image != previousReturned && image != source && image != proxy
+                && image != proxyInput && !results.contains(image) && PixelEngine.isIntBacked(image);
+    }
+
+    // Ostatni zapamiętany wynik i kroki, które trzeba jeszcze na nim wykonać
+    private synchronized Pending pending() {
+        int start = steps.size();
+        while (start > 0 && results.get(start - 1) == null) {
+            start--;
+        }
+        BufferedImage input = start == 0 ? source : results.get(start - 1);
+        boolean cacheable = !steps.isEmpty() && !adjusted.get(steps.size() - 1);
+        return new Pending(input, new ArrayList<>(steps.subList(0, start)), new ArrayList<>(steps.subList(start, steps.size())),
+                start, version, cacheable, 0);
+    }
+
+    private static final class Pending {
+        final BufferedImage input;
+        final List<EffectStep> prefix; // Kroki, których wynikiem jest input
+        final List<EffectStep> steps;
+        final int start;
+        final int version;
+        final boolean cacheable; // Czy wynik całej pracy zapisać w RenderCache (ostatni krok jest zatwierdzony)
+        final long fingerprint; // Odcisk obrazu źródłowego (tylko przy włączonej pamięci podręcznej)
+
+        Pending(BufferedImage input, List<EffectStep> prefix, List<EffectStep> steps, int start, int version,
+                boolean cacheable, long fingerprint) {
+            this.input = input;
+            this.prefix = prefix;
+            this.steps = steps;
+            this.start = start;
+            this.version = version;
+            this.cacheable = cacheable;
+            this.fingerprint = fingerprint;
+        }
+
+        Pending withFingerprint(long fingerprint) {
+            return new Pending(input, prefix, steps, start, version, cacheable, fingerprint);
+        }
+
+        // Klucz RenderCache wyniku całej pracy: wszystkie kroki od obrazu źródłowego
+        RenderCache.Key key(BufferedImage source) {
+            List<EffectStep> chain = new ArrayList<>(prefix);
+            chain.addAll(steps);
+            return RenderCache.Key.of(fingerprint, source, chain);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+// Rejestr efektów znalezionych przez ServiceLoader, wczytywany raz przy pierwszym użyciu. Kolejność efektów to
+// kolejność w plikach META-INF/services, więc przyciski generowane z rejestru mają stały układ.
+
+package imaging;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceLoader;
+
+public final class EffectRegistry {
+    private static final Map<String, PixelEffect> EFFECTS = load();
+
+    private EffectRegistry() {
+    }
+
+    // Wszystkie efekty w kolejności rejestracji
+    public static List<PixelEffect> effects() {
+        return Collections.unmodifiableList(new ArrayList<>(EFFECTS.values()));
+    }
+
+    // Efekt o podanej nazwie albo null
+    public static PixelEffect find(String name) {
+        return EFFECTS.get(name);
+    }
+
+    public static PixelEffect get(String name) {
+        PixelEffect effect = EFFECTS.get(name);
+        if (effect == null) {
+            throw new IllegalArgumentException("Nieznany efekt: " + name);
+        }
+        return effect;
+    }
+
+    private static Map<String, PixelEffect> load() {
+        Map<String, PixelEffect> effects = new LinkedHashMap<>();
+        for (PixelEffect effect : ServiceLoader.load(PixelEffect.class, EffectRegistry.class.getClassLoader())) {
+            if (effects.putIfAbsent(effect.getName(), effect) != null) {
+                throw new IllegalStateException("Dwa efekty o nazwie " + effect.getName());
+            }
+        }
+        return effects;
+    }
+}
@@ -0,0 +1,91 @@
+// Pojedynczy krok potoku efektów: nazwa efektu i jego parametr. Obiekt jest niezmienny, więc można go bezpiecznie
+// przekazywać między wątkami i porównywać z krokami zapisanymi wcześniej. Efekt jest wyszukiwany w EffectRegistry już
+// przy tworzeniu kroku, więc nieznana nazwa albo parametr spoza zakresu są zgłaszane od razu. Efekt spoza rejestru
+// (np. AutoLevels z tablicą policzoną dla konkretnego obrazu) może nieść własne dane - porównujemy więc także definicje.
+
+package imaging;
+
+import java.util.Objects;
+
+public final class EffectStep {
+    public static final String SATURATION = "saturation";
+
+    private final String effect;
+    private final float parameter;
+    private final PixelEffect definition;
+
+    private EffectStep(PixelEffect definition, float parameter) {
+        this.effect = definition.getName();
+        this.parameter = parameter;
+        this.definition = definition;
+    }
+
+    // Krok efektu o podanej nazwie; efekt z parametrem dostaje wartość domyślną
+    public static EffectStep of(String effect) {
+        return of(EffectRegistry.get(Objects.requireNonNull(effect)));
+    }
+
+    public static EffectStep of(PixelEffect effect) {
+        ParameterRange range = effect.getParameterRange();
+        return new EffectStep(effect, range != null ? range.getDefaultValue() : 0f);
+    }
+
+    // Krok efektu z parametrem o podanej wartości
+    public static EffectStep of(String effect, float parameter) {
+        PixelEffect definition = EffectRegistry.get(Objects.requireNonNull(effect));
+        ParameterRange range = definition.getParameterRange();
+        if (range == null) {
+            throw new IllegalArgumentException("Efekt " + effect + " nie ma parametru");
+        }
+        if (!range.contains(parameter)) {
+            throw new IllegalArgumentException(range.getLabel() + " poza zakresem " + range.getMin() + "-"
+                    + range.getMax() + ": " + parameter);
+        }
+        return new EffectStep(definition, parameter);
+    }
+
+    // Krok regulacji nasycenia o podany współczynnik (0-2)
+    public static EffectStep saturation(float saturation) {
+        return of(SATURATION, saturation);
+    }
+
+    public String getEffect() {
+        return effect;
+    }
+
+    public PixelEffect getDefinition() {
+        return definition;
+    }
+
+    public float getParameter() {
+        return parameter;
+    }
+
+    // Metoda zwracająca kernel realizujący ten krok
+    public PixelEngine.Kernel kernel() {
+        return definition.kernel(parameter);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof EffectStep)) {
+            return false;
+        }
+        EffectStep other = (EffectStep) o;
+        return effect.equals(other.effect) && Float.compare(parameter, other.parameter) == 0
+                && definition.equals(other.definition);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * effect.hashCode() + Float.hashCode(parameter);
+    }
+
+    @Override
+    public String toString() {
+        return definition.getParameterRange() != null ? effect + "(" + parameter + ")" : effect;
+    }
+}
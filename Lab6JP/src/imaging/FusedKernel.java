@@ -0,0 +1,180 @@
+// Kompilator łańcucha efektów punktowych do jednego kernela. Zamiast robić osobne przejście po całym obrazie (i osobny
+// obraz) dla każdego efektu, zakres pikseli dzielimy na małe porcje i każdą porcję przepuszczamy przez wszystkie
+// efekty, zanim przejdziemy do następnej - porcja przez cały czas jest w pamięci podręcznej procesora, więc każdy piksel
+// jest czytany z pamięci raz i raz zapisywany. Każdy krok liczy jego własny kernel (także wektorowy), dlatego wynik
+// jest identyczny z liczeniem krok po kroku, a RenderCache może bezpiecznie podmieniać jedno na drugie.
+// Kolejne efekty z tablicą LUT (PixelEffect.lookupTable) składamy w jedną tablicę, a kolejne efekty liniowe - w jedną
+// macierz kolorów 3x4, o ile złożenie daje te same piksele (patrz compileKernels). Łańcuch może zawierać tylko efekty
+// punktowe.
+
+package imaging;
+
+import java.util.ArrayList;
+import java.util.List;
+
+public final class FusedKernel {
+    private static final int CHUNK = 2048; // Pikseli w porcji - porcja źródła i wyniku mieści się razem w L1
+
+    private FusedKernel() {
+    }
+
+    // Metoda kompilująca listę kroków do jednego kernela. Pojedynczy krok używa po prostu swojego kernela.
+    public static PixelEngine.Kernel compile(List<EffectStep> steps) {
+        if (steps.isEmpty()) {
+            return PixelEngine.identity();
+        }
+        PixelEngine.Kernel[] kernels = compileKernels(steps);
+        if (kernels.length == 1) {
+            return kernels[0];
+        }
+        // Pierwszy kernel czyta źródło, kolejne pracują w miejscu na porcji wyniku - kernel punktowy zapisuje piksel
+        // dopiero po przeczytaniu go
+        return (src, dst, from, to) -> {
+            for (int start = from; start < to; start += CHUNK) {
+                int end = Math.min(to, start + CHUNK);
+                kernels[0].apply(src, dst, start, end);
+                for (int k = 1; k < kernels.length; k++) {
+                    kernels[k].apply(dst, dst, start, end);
+                }
+            }
+        };
+    }
+
+    // Zamieniamy kroki na listę kerneli. Sąsiednie kroki zbieramy w ciąg, który daje się złożyć w jeden kernel bez
+    // zmiany wyniku:
+    // - kroki z tablicą LUT składamy w jedną tablicę - wyniki tablic to liczby całkowite 0-255, więc złożenie daje
+    //   dokładnie to samo co kolejne odczyty;
+    // - efekty liniowe składamy w jedną macierz tylko wtedy, gdy złożenie jest dokładne: każdy krok ma kernel równy
+    //   swojej macierzy zaokrąglonej w dół (PixelEffect.isMatrixExact), a każdy krok poza ostatnim ma macierz
+    //   całkowitą, która nie wychodzi poza 0-255 (np. invert, blue). Wyniki takich kroków są liczbami całkowitymi
+    //   bez zaokrąglania, więc jedyne zaokrąglenie w dół zostaje na końcu, tak jak w ostatnim kroku liczonym osobno.
+    //   Dlatego np. invert, blue, grayscale to jedna macierz, a po grayscale (współczynniki 1/3) ciąg się kończy.
+    //   Sepia nie jest dokładna (patrz Sepia), więc zawsze liczy ją jej własny kernel.
+    // Ciąg jednego kroku zostaje kernelem tego kroku (np. wektorowa inwersja).
+    static PixelEngine.Kernel[] compileKernels(List<EffectStep> steps) {
+        List<PixelEngine.Kernel> kernels = new ArrayList<>();
+        List<EffectStep> run = new ArrayList<>(); // Kroki czekające na złożenie
+        boolean tables = false; // Czy wszystkie kroki ciągu mają tablicę LUT
+        boolean matrices = false; // Czy ciąg można dokładnie złożyć w jedną macierz
+        for (EffectStep step : steps) {
+            PixelEffect effect = step.getDefinition();
+            if (!effect.isPointwise()) {
+                throw new IllegalArgumentException("Efekt " + effect.getName() + " nie jest punktowy");
+            }
+            boolean hasTable = effect.lookupTable(step.getParameter()) != null;
+            boolean exact = effect.isLinear() && effect.isMatrixExact();
+            if (!run.isEmpty()) {
+                boolean asTables = tables && hasTable;
+                boolean asMatrix = matrices && exact && isIntegral(run.get(run.size() - 1));
+                if (asTables || asMatrix) {
+                    run.add(step);
+                    tables = asTables;
+                    matrices = asMatrix;
+                    continue;
+                }
+                kernels.add(compileRun(run, tables));
+                run.clear();
+            }
+            if (hasTable || exact) {
+                run.add(step);
+                tables = hasTable;
+                matrices = exact;
+            } else {
+                kernels.add(step.kernel());
+            }
+        }
+        if (!run.isEmpty()) {
+            kernels.add(compileRun(run, tables));
+        }
+        return kernels.toArray(new PixelEngine.Kernel[0]);
+    }
+
+    // Kernel ciągu kroków; jeśli ciąg da się złożyć na oba sposoby, wybieramy tablicę (odczyt zamiast mnożeń)
+    private static PixelEngine.Kernel compileRun(List<EffectStep> run, boolean tables) {
+        if (run.size() == 1) {
+            return run.get(0).kernel();
+        }
+        if (tables) {
+            LookupTable table = null;
+            for (EffectStep step : run) {
+                LookupTable next = step.getDefinition().lookupTable(step.getParameter());
+                table = table == null ? next : table.then(next);
+            }
+            return table.kernel();
+        }
+        ColorMatrix matrix = null;
+        for (EffectStep step : run) {
+            ColorMatrix next = new ColorMatrix(step.getDefinition().colorMatrix(step.getParameter()));
+            matrix = matrix == null ? next : next.multiply(matrix);
+        }
+        return matrix.kernel();
+    }
+
+    // Czy wynik kroku liniowego to zawsze liczba całkowita 0-255 - wtedy kolejna macierz może go wziąć bez zaokrąglenia
+    private static boolean isIntegral(EffectStep step) {
+        PixelEffect effect = step.getDefinition();
+        if (!effect.preservesRange()) {
+            return false;
+        }
+        for (double value : effect.colorMatrix(step.getParameter())) {
+            if (value != Math.rint(value)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Macierz 3x4: każda składowa wyniku to kombinacja liniowa r, g, b plus przesunięcie, zaokrąglona w dół i przycięta
+    // do 0-255
+    static final class ColorMatrix {
+        private static final double EPSILON = 1e-9; // Chroni przed obcięciem np. 3 * (1/3.0) do 0.999...
+
+        private final double[] m; // Wiersze r, g, b; w każdym 3 współczynniki i przesunięcie
+
+        ColorMatrix(double[] m) {
+            this.m = m;
+        }
+
+        // Złożenie: najpierw first, potem this
+        ColorMatrix multiply(ColorMatrix first) {
+            double[] a = m;
+            double[] b = first.m;
+            double[] result = new double[12];
+            for (int row = 0; row < 3; row++) {
+                for (int col = 0; col < 4; col++) {
+                    double sum = col == 3 ? a[row * 4 + 3] : 0;
+                    for (int k = 0; k < 3; k++) {
+                        sum += a[row * 4 + k] * b[k * 4 + col];
+                    }
+                    result[row * 4 + col] = sum;
+                }
+            }
+            return new ColorMatrix(result);
+        }
+
+        PixelEngine.Kernel kernel() {
+            return (src, dst, from, to) -> {
+                for (int i = from; i < to; i++) {
+                    dst[i] = apply(src[i]);
+                }
+            };
+        }
+
+        int apply(int pixel) {
+            int r = (pixel >> 16) & 0xff;
+            int g = (pixel >> 8) & 0xff;
+            int b = pixel & 0xff;
+            int tr = clamp(m[0] * r + m[1] * g + m[2] * b + m[3]);
+            int tg = clamp(m[4] * r + m[5] * g + m[6] * b + m[7]);
+            int tb = clamp(m[8] * r + m[9] * g + m[10] * b + m[11]);
+            return 0xff000000 | (tr << 16) | (tg << 8) | tb;
+        }
+
+        // Wynik dokładnej macierzy to wielokrotność ułamka o małym mianowniku (np. 1/3), więc poprawka EPSILON nie
+        // przesunie żadnej wartości, która naprawdę jest mniejsza od liczby całkowitej
+        private static int clamp(double value) {
+            int v = (int) Math.floor(value + EPSILON);
+            return v < 0 ? 0 : Math.min(255, v);
+        }
+    }
+}
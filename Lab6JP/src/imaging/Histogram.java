@@ -0,0 +1,152 @@
+// Histogramy składowych r, g, b i jasności obrazu (po 256 poziomów). Piksele zliczamy równolegle na pasach wierszy;
+// wątki nie dzielą liczników - każdy wątek ma własną tablicę liczników (Accumulator), a tablice sumujemy dopiero na
+// końcu, więc zliczanie nie wymaga ani blokad, ani operacji atomowych.
+
+package imaging;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class Histogram {
+    public static final int LEVELS = 256;
+
+    public enum Channel {
+        RED, GREEN, BLUE, LUMINANCE
+    }
+
+    private final long[][] counts; // [kanał][poziom]
+    private final long total;
+
+    private Histogram(long[][] counts, long total) {
+        this.counts = counts;
+        this.total = total;
+    }
+
+    // Histogram całego obrazu liczony na wspólnym egzekutorze
+    public static Histogram of(BufferedImage image) {
+        return of(image, TileExecutor.shared());
+    }
+
+    public static Histogram of(BufferedImage image, TileExecutor executor) {
+        int[] pixels = PixelEngine.readPixels(image);
+        Accumulator accumulator = new Accumulator();
+        // Kernel tylko czyta piksele, więc tablica wyjściowa może być tą samą tablicą
+        executor.execute(pixels, pixels, image.getWidth(), image.getHeight(),
+                (src, dst, from, to) -> accumulator.add(src, from, to), () -> false, percent -> { });
+        return accumulator.toHistogram();
+    }
+
+    // Liczba pikseli, których składowa channel ma wartość level
+    public long getCount(Channel channel, int level) {
+        return counts[channel.ordinal()][level];
+    }
+
+    public long[] getCounts(Channel channel) {
+        return counts[channel.ordinal()].clone();
+    }
+
+    public long getMaxCount(Channel channel) {
+        long max = 0;
+        for (long count : counts[channel.ordinal()]) {
+            max = Math.max(max, count);
+        }
+        return max;
+    }
+
+    public long getTotal() {
+        return total;
+    }
+
+    // Najmniejszy poziom, poniżej którego i na którym leży co najmniej fraction pikseli (0 - najciemniejszy piksel,
+    // 1 - najjaśniejszy)
+    public int percentile(Channel channel, double fraction) {
+        long[] levels = counts[channel.ordinal()];
+        long threshold = Math.max(1, (long) Math.ceil(fraction * total));
+        long cumulative = 0;
+        for (int level = 0; level < LEVELS; level++) {
+            cumulative += levels[level];
+            if (cumulative >= threshold) {
+                return level;
+            }
+        }
+        return LEVELS - 1;
+    }
+
+    public double mean(Channel channel) {
+        if (total == 0) {
+            return 0;
+        }
+        long[] levels = counts[channel.ordinal()];
+        long sum = 0;
+        for (int level = 0; level < LEVELS; level++) {
+            sum += level * levels[level];
+        }
+        return (double) sum / total;
+    }
+
+    // Jasność piksela (wagi luminancji z Rec. 601 w arytmetyce stałoprzecinkowej, suma wag 256)
+    static int luminance(int pixel) {
+        return (77 * ((pixel >> 16) & 0xff) + 150 * ((pixel >> 8) & 0xff) + 29 * (pixel & 0xff)) >> 8;
+    }
+
+    // Zbieranie liczników z wielu wątków naraz. Każdy wątek przy pierwszym add dostaje własny pas liczników (stripe);
+    // toHistogram wolno wywołać dopiero po zakończeniu wszystkich add (np. po powrocie z TileExecutor.execute albo
+    // po zakończeniu renderowania), bo dopiero wtedy zapisy wątków roboczych są widoczne.
+    public static final class Accumulator {
+        private final List<int[]> stripes = new ArrayList<>();
+        private final ThreadLocal<int[]> stripe = ThreadLocal.withInitial(this::newStripe);
+
+        private int[] newStripe() {
+            int[] counts = new int[4 * LEVELS];
+            synchronized (stripes) {
+                stripes.add(counts);
+            }
+            return counts;
+        }
+
+        // Zliczamy piksele o indeksach [from, to)
+        public void add(int[] pixels, int from, int to) {
+            int[] counts = stripe.get();
+            for (int i = from; i < to; i++) {
+                int pixel = pixels[i];
+                counts[(pixel >> 16) & 0xff]++;
+                counts[LEVELS + ((pixel >> 8) & 0xff)]++;
+                counts[2 * LEVELS + (pixel & 0xff)]++;
+                counts[3 * LEVELS + luminance(pixel)]++;
+            }
+        }
+
+        // Zliczamy fragment region obrazu image (np. gotowy pas wyniku)
+        public void add(BufferedImage image, Rectangle region) {
+            int width = image.getWidth();
+            int[] pixels = PixelEngine.data(image);
+            if (region.x == 0 && region.width == width) {
+                add(pixels, region.y * width, (region.y + region.height) * width); // Całe wiersze leżą w tablicy po kolei
+                return;
+            }
+            for (int y = region.y; y < region.y + region.height; y++) {
+                add(pixels, y * width + region.x, y * width + region.x + region.width);
+            }
+        }
+
+        public Histogram toHistogram() {
+            long[][] counts = new long[Channel.values().length][LEVELS];
+            long total = 0;
+            synchronized (stripes) {
+                for (int[] stripe : stripes) {
+                    for (int channel = 0; channel < counts.length; channel++) {
+                        for (int level = 0; level < LEVELS; level++) {
+                            counts[channel][level] += stripe[channel * LEVELS + level];
+                        }
+                    }
+                }
+            }
+            for (long count : counts[0]) {
+                total += count;
+            }
+            return new Histogram(counts, total);
+        }
+    }
+}
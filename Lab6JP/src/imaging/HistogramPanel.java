@@ -0,0 +1,87 @@
+// Wykres histogramu: jasność jako szare pole, składowe r, g, b jako kolorowe linie. Wysokości są skalowane do
+// największego słupka, ale z pominięciem poziomów 0 i 255 - przy prześwietleniu albo obcięciu cieni jeden skrajny
+// słupek spłaszczyłby cały wykres.
+
+package imaging;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.geom.Path2D;
+
+public final class HistogramPanel extends JComponent {
+    private static final Color[] CHANNEL_COLORS = {
+            new Color(230, 60, 60), new Color(60, 190, 60), new Color(70, 110, 240)};
+
+    private Histogram histogram;
+
+    public HistogramPanel() {
+        setPreferredSize(new Dimension(Histogram.LEVELS, 80));
+        setOpaque(true);
+        setBackground(new Color(40, 40, 40));
+    }
+
+    public void setHistogram(Histogram histogram) {
+        this.histogram = histogram;
+        repaint();
+    }
+
+    public Histogram getHistogram() {
+        return histogram;
+    }
+
+    @Override
+    protected void paintComponent(Graphics graphics) {
+        Graphics2D g = (Graphics2D) graphics.create();
+        try {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+            if (histogram == null || histogram.getTotal() == 0) {
+                return;
+            }
+            g.setRenderingHint(RenderingHints.KEY_ANTIALIASING, RenderingHints.VALUE_ANTIALIAS_ON);
+            long max = 1;
+            for (Histogram.Channel channel : Histogram.Channel.values()) {
+                long[] counts = histogram.getCounts(channel);
+                for (int level = 1; level < Histogram.LEVELS - 1; level++) {
+                    max = Math.max(max, counts[level]);
+                }
+            }
+            g.setColor(Color.GRAY);
+            g.fill(outline(histogram.getCounts(Histogram.Channel.LUMINANCE), max, true));
+            g.setComposite(AlphaComposite.getInstance(AlphaComposite.SRC_OVER, 0.85f));
+            Histogram.Channel[] colors = {Histogram.Channel.RED, Histogram.Channel.GREEN, Histogram.Channel.BLUE};
+            for (int i = 0; i < colors.length; i++) {
+                g.setColor(CHANNEL_COLORS[i]);
+                g.draw(outline(histogram.getCounts(colors[i]), max, false));
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    // Kształt histogramu rozciągnięty na cały komponent; closed - zamknięty wzdłuż dolnej krawędzi (do wypełnienia)
+    private Path2D outline(long[] counts, long max, boolean closed) {
+        double width = getWidth();
+        double height = getHeight() - 1;
+        Path2D path = new Path2D.Double();
+        for (int level = 0; level < counts.length; level++) {
+            double x = (level + 0.5) * width / counts.length;
+            double y = height - Math.min(1, (double) counts[level] / max) * height;
+            if (level == 0) {
+                if (closed) {
+                    path.moveTo(0, height);
+                    path.lineTo(x, y);
+                } else {
+                    path.moveTo(x, y);
+                }
+            } else {
+                path.lineTo(x, y);
+            }
+        }
+        if (closed) {
+            path.lineTo(width, height);
+            path.closePath();
+        }
+        return path;
+    }
+}
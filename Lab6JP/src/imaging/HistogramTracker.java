@@ -0,0 +1,68 @@
+// Histogramy kolejnych wyników renderowania bez osobnego przejścia po obrazie. Listener z track zlicza piksele
+// każdego gotowego pasa zaraz po jego policzeniu, na tym samym wątku roboczym, gdy pas jest jeszcze w pamięci
+// podręcznej procesora. Jeśli pasy pokryły cały obraz, histogramOf tylko sumuje liczniki wątków; obraz, którego nikt
+// nie liczył pasami (np. zapamiętany wynik po cofnięciu efektu), jest zliczany od nowa.
+// Histogramy są zapamiętywane dla obiektów obrazów (słabe referencje), więc ponowne wyświetlenie wyniku nic nie kosztuje.
+
+package imaging;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+public final class HistogramTracker {
+    private final Map<BufferedImage, Streamed> streaming = Collections.synchronizedMap(new WeakHashMap<>());
+    private final Map<BufferedImage, Histogram> histograms = Collections.synchronizedMap(new WeakHashMap<>());
+
+    // Listener do przekazania renderowaniu: zlicza pasy i przekazuje je dalej do next (może być null)
+    public TileExecutor.BandListener track(TileExecutor.BandListener next) {
+        return (image, band) -> {
+            streaming.computeIfAbsent(image, Streamed::new).add(image, band);
+            if (next != null) {
+                next.bandDone(image, band);
+            }
+        };
+    }
+
+    // Histogram gotowego obrazu (wywoływać po zakończeniu renderowania, które go zwróciło)
+    public Histogram histogramOf(BufferedImage image) {
+        Histogram histogram = histograms.get(image);
+        if (histogram != null) {
+            return histogram;
+        }
+        Streamed streamed = streaming.remove(image);
+        histogram = streamed != null && streamed.isComplete() ? streamed.counts.toHistogram() : Histogram.of(image);
+        histograms.put(image, histogram);
+        return histogram;
+    }
+
+    // Obraz zmieniono w miejscu (np. TileLockedImage) - zapamiętany histogram jest nieaktualny
+    public void forget(BufferedImage image) {
+        histograms.remove(image);
+        streaming.remove(image);
+    }
+
+    // Liczniki obrazu, którego pasy właśnie powstają
+    private static final class Streamed {
+        final Histogram.Accumulator counts = new Histogram.Accumulator();
+        final AtomicLong pixels = new AtomicLong(); // Ile pikseli już zliczono
+        final long size;
+
+        Streamed(BufferedImage image) {
+            size = (long) image.getWidth() * image.getHeight();
+        }
+
+        void add(BufferedImage image, Rectangle band) {
+            counts.add(image, band);
+            pixels.addAndGet((long) band.width * band.height);
+        }
+
+        // Pasy nie nachodzą na siebie, więc komplet pikseli oznacza, że każdy pas zliczono dokładnie raz
+        boolean isComplete() {
+            return pixels.get() == size;
+        }
+    }
+}
@@ -0,0 +1,164 @@
+// Asynchroniczne wczytywanie obrazu oparte o ImageReader. Dekodowanie odbywa się w tle, postęp trafia do paska
+// postępu, a częściowo zdekodowany obraz (kolejne przebiegi obrazów progresywnych albo kolejne pasy wierszy) jest
+// przekazywany do wątku GUI, żeby użytkownik widział obraz jeszcze przed końcem wczytywania. Wczytywanie można
+// przerwać metodą cancel - dekoder jest wtedy zatrzymywany przez ImageReader.abort().
+// Obrazy, których pełny raster nie zmieściłby się w budżecie pamięci, są dekodowane z podpróbkowaniem do rozmiaru
+// ekranu; fragmenty w pełnej rozdzielczości można potem doczytać przez ImageSource.
+
+package imaging;
+
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadProgressListener;
+import javax.imageio.event.IIOReadUpdateListener;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
+
+public final class ImageLoader extends SwingWorker<BufferedImage, BufferedImage> {
+    private static final long PARTIAL_INTERVAL_NANOS = 100_000_000L; // Częściowy obraz pokazujemy najwyżej co 100 ms
+
+    private final ImageSource source;
+    private final Dimension maxSize; // Rozmiar, do którego pomniejszamy zbyt duże obrazy
+    private final long memoryBudget; // Największy raster ARGB (w bajtach), który wczytujemy w pełnej rozdzielczości
+    private final Consumer<BufferedImage> onPartial;
+    private final Consumer<BufferedImage> onLoaded;
+    private final Consumer<Exception> onError;
+    private long lastPartial;
+
+    public ImageLoader(ImageSource source, JProgressBar progressBar, Consumer<BufferedImage> onPartial,
+                       Consumer<BufferedImage> onLoaded, Consumer<Exception> onError) {
+        this.source = source;
+        this.maxSize = GraphicsEnvironment.isHeadless()
+                ? new Dimension(1920, 1080) : Toolkit.getDefaultToolkit().getScreenSize();
+        this.memoryBudget = Runtime.getRuntime().maxMemory() / 8;
+        this.onPartial = onPartial;
+        this.onLoaded = onLoaded;
+        this.onError = onError;
+        progressBar.setValue(0);
+        addPropertyChangeListener(e -> {
+            if ("progress".equals(e.getPropertyName())) {
+                progressBar.setValue((Integer) e.getNewValue());
+            }
+        });
+    }
+
+    @Override
+    protected BufferedImage doInBackground() throws Exception {
+        int subsampling = source.subsamplingFor(maxSize.width, maxSize.height, memoryBudget);
+        BufferedImage image = source.read(null, subsampling, new ProgressListener(), new UpdateListener());
+        if (isCancelled()) {
+            return null;
+        }
+        return PixelEngine.toIntArgb(image); // Konwersję też wykonujemy w tle
+    }
+
+    @Override
+    protected void process(List<BufferedImage> chunks) {
+        if (!isCancelled()) {
+            onPartial.accept(chunks.get(chunks.size() - 1)); // Wystarczy najnowszy stan obrazu
+        }
+    }
+
+    @Override
+    protected void done() {
+        if (isCancelled()) {
+            return;
+        }
+        try {
+            onLoaded.accept(get());
+        } catch (ExecutionException e) {
+            onError.accept(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+        } catch (InterruptedException e) {
+            onError.accept(e);
+        }
+    }
+
+    private void publishPartial(BufferedImage image, boolean force) {
+        long now = System.nanoTime();
+        if (force || now - lastPartial >= PARTIAL_INTERVAL_NANOS) {
+            lastPartial = now;
+            publish(image);
+        }
+    }
+
+    // Postęp dekodowania; przy okazji sprawdzamy, czy wczytywanie nie zostało anulowane
+    private final class ProgressListener implements IIOReadProgressListener {
+        @Override
+        public void imageProgress(ImageReader source, float percentageDone) {
+            if (isCancelled()) {
+                source.abort();
+                return;
+            }
+            setProgress(Math.min(100, Math.round(percentageDone)));
+        }
+
+        @Override
+        public void imageComplete(ImageReader source) {
+            setProgress(100);
+        }
+
+        @Override
+        public void sequenceStarted(ImageReader source, int minIndex) {
+        }
+
+        @Override
+        public void sequenceComplete(ImageReader source) {
+        }
+
+        @Override
+        public void imageStarted(ImageReader source, int imageIndex) {
+        }
+
+        @Override
+        public void thumbnailStarted(ImageReader source, int imageIndex, int thumbnailIndex) {
+        }
+
+        @Override
+        public void thumbnailProgress(ImageReader source, float percentageDone) {
+        }
+
+        @Override
+        public void thumbnailComplete(ImageReader source) {
+        }
+
+        @Override
+        public void readAborted(ImageReader source) {
+        }
+    }
+
+    // Częściowo zdekodowany obraz: pełny przebieg obrazu progresywnego albo kolejne wiersze
+    private final class UpdateListener implements IIOReadUpdateListener {
+        @Override
+        public void passComplete(ImageReader source, BufferedImage theImage) {
+            publishPartial(theImage, true);
+        }
+
+        @Override
+        public void imageUpdate(ImageReader source, BufferedImage theImage, int minX, int minY, int width, int height,
+                                int periodX, int periodY, int[] bands) {
+            publishPartial(theImage, false);
+        }
+
+        @Override
+        public void passStarted(ImageReader source, BufferedImage theImage, int pass, int minPass, int maxPass,
+                                int minX, int minY, int periodX, int periodY, int[] bands) {
+        }
+
+        @Override
+        public void thumbnailPassStarted(ImageReader source, BufferedImage theThumbnail, int pass, int minPass,
+                                         int maxPass, int minX, int minY, int periodX, int periodY, int[] bands) {
+        }
+
+        @Override
+        public void thumbnailPassComplete(ImageReader source, BufferedImage theThumbnail) {
+        }
+
+        @Override
+        public void thumbnailUpdate(ImageReader source, BufferedImage theThumbnail, int minX, int minY, int width,
+                                    int height, int periodX, int periodY, int[] bands) {
+        }
+    }
+}
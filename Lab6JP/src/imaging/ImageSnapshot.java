@@ -0,0 +1,71 @@
+// Niezmienna, wersjonowana migawka stanu obrazu: obraz źródłowy, lista zastosowanych efektów i gotowy wynik.
+// Migawki nigdy się nie zmieniają - każda zmiana tworzy nową migawkę z wersją o jeden większą, więc wątki mogą je
+// czytać bez żadnej blokady, a publikować przez AtomicReference.compareAndSet.
+
+package imaging;
+
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public final class ImageSnapshot {
+    private final BufferedImage source;
+    private final List<EffectStep> steps;
+    private final BufferedImage image; // Wynik wszystkich kroków - tylko do odczytu
+    private final long version;
+
+    private ImageSnapshot(BufferedImage source, List<EffectStep> steps, BufferedImage image, long version) {
+        this.source = source;
+        this.steps = steps;
+        this.image = image;
+        this.version = version;
+    }
+
+    // Pierwsza wersja: wczytany obraz bez efektów
+    public static ImageSnapshot of(BufferedImage source) {
+        BufferedImage argb = PixelEngine.toIntArgb(source);
+        return new ImageSnapshot(argb, Collections.emptyList(), argb, 0);
+    }
+
+    public BufferedImage getSource() {
+        return source;
+    }
+
+    public List<EffectStep> getSteps() {
+        return steps;
+    }
+
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    // Czy obie migawki dotyczą tego samego wczytanego obrazu
+    public boolean hasSameSource(ImageSnapshot other) {
+        return other != null && source == other.source;
+    }
+
+    // Nowa wersja z dodanym krokiem - liczymy tylko ten krok, na wyniku tej migawki
+    public ImageSnapshot withStep(EffectStep step) {
+        List<EffectStep> newSteps = new ArrayList<>(steps);
+        newSteps.add(step);
+        BufferedImage result = EffectChain.of(Collections.singletonList(step)).render(image, TileExecutor.shared());
+        return new ImageSnapshot(source, Collections.unmodifiableList(newSteps), result, version + 1);
+    }
+
+    // Nowa wersja bez ostatniego kroku - pozostałe kroki liczymy od źródła w jednym przejściu, dzięki czemu migawka
+    // nie musi pamiętać wyników pośrednich
+    public ImageSnapshot withoutLastStep() {
+        if (steps.isEmpty()) {
+            return this;
+        }
+        List<EffectStep> newSteps = Collections.unmodifiableList(new ArrayList<>(steps.subList(0, steps.size() - 1)));
+        BufferedImage result = newSteps.isEmpty()
+                ? source : EffectChain.of(newSteps).render(source, TileExecutor.shared());
+        return new ImageSnapshot(source, newSteps, result, version + 1);
+    }
+}
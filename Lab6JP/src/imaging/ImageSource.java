@@ -0,0 +1,107 @@
+// Plik obrazu, z którego można dekodować wybrane fragmenty (ImageReadParam.setSourceRegion) i wersje pomniejszone
+// (setSourceSubsampling) bez wczytywania całego obrazu do pamięci. Bardzo duże skany wczytujemy najpierw w rozmiarze
+// ekranu, a fragmenty w pełnej rozdzielczości dekodujemy dopiero wtedy, gdy są potrzebne.
+
+package imaging;
+
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.event.IIOReadProgressListener;
+import javax.imageio.event.IIOReadUpdateListener;
+import javax.imageio.stream.ImageInputStream;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+
+public final class ImageSource {
+    private final File file;
+    private Dimension size; // Wymiary w pełnej rozdzielczości (czytane z nagłówka przy pierwszym użyciu)
+
+    public ImageSource(File file) {
+        this.file = file;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    // Wymiary obrazu w pełnej rozdzielczości - dekoder czyta tylko nagłówek pliku
+    public synchronized Dimension getSize() throws IOException {
+        if (size == null) {
+            ImageReader reader = open();
+            try {
+                size = new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                close(reader);
+            }
+        }
+        return new Dimension(size);
+    }
+
+    // Co który piksel czytać, żeby obraz zmieścił się w maxWidth x maxHeight; obrazy, których pełny raster ARGB
+    // mieści się w budżecie pamięci, czytamy w całości (1)
+    public int subsamplingFor(int maxWidth, int maxHeight, long memoryBudget) throws IOException {
+        Dimension full = getSize();
+        if ((long) full.width * full.height * 4 <= memoryBudget) {
+            return 1;
+        }
+        int byWidth = (full.width + maxWidth - 1) / maxWidth;
+        int byHeight = (full.height + maxHeight - 1) / maxHeight;
+        return Math.max(1, Math.max(byWidth, byHeight));
+    }
+
+    // Dekodujemy fragment region (w pikselach pełnej rozdzielczości; null oznacza cały obraz), czytając co subsampling-ty
+    // piksel w obu kierunkach
+    public BufferedImage read(Rectangle region, int subsampling) throws IOException {
+        return read(region, subsampling, null, null);
+    }
+
+    BufferedImage read(Rectangle region, int subsampling, IIOReadProgressListener progress,
+                       IIOReadUpdateListener update) throws IOException {
+        ImageReader reader = open();
+        try {
+            ImageReadParam param = reader.getDefaultReadParam();
+            if (region != null) {
+                param.setSourceRegion(region);
+            }
+            if (subsampling > 1) {
+                param.setSourceSubsampling(subsampling, subsampling, 0, 0);
+            }
+            if (progress != null) {
+                reader.addIIOReadProgressListener(progress);
+            }
+            if (update != null) {
+                reader.addIIOReadUpdateListener(update);
+            }
+            return reader.read(0, param);
+        } finally {
+            close(reader);
+        }
+    }
+
+    private ImageReader open() throws IOException {
+        ImageInputStream input = ImageIO.createImageInputStream(file);
+        if (input == null) {
+            throw new IOException("Nie można otworzyć pliku " + file);
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(input);
+        if (!readers.hasNext()) {
+            input.close();
+            throw new IOException("Nieobsługiwany format pliku " + file);
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(input, true, true);
+        return reader;
+    }
+
+    private static void close(ImageReader reader) throws IOException {
+        Object input = reader.getInput();
+        reader.dispose();
+        if (input instanceof ImageInputStream) {
+            ((ImageInputStream) input).close();
+        }
+    }
+}
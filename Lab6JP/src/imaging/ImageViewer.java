@@ -0,0 +1,295 @@
+// Komponent wyświetlający obraz zamiast JLabel z new ImageIcon(...) przy każdej zmianie. Obraz jest kopiowany do obrazu
+// zgodnego z ekranem (GraphicsConfiguration.createCompatibleImage), który Java2D może trzymać w pamięci karty graficznej;
+// obrazy wyników nadają się do tego gorzej, bo PixelEngine pracuje bezpośrednio na ich tablicach pikseli. Przy zmianie
+// fragmentu kopiujemy i odświeżamy tylko ten fragment, a rysujemy tylko widoczną część obrazu, więc koszt odświeżenia
+// zależy od rozmiaru okna, a nie obrazu.
+// Obraz jest domyślnie dopasowany do okna; kółko myszy przybliża (wokół kursora), przeciąganie przesuwa widok,
+// a dwuklik wraca do dopasowania.
+
+package imaging;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.event.MouseWheelEvent;
+import java.awt.geom.Rectangle2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+
+public final class ImageViewer extends JComponent {
+    private static final double MAX_SCALE = 32; // Największe powiększenie: 32 piksele ekranu na piksel obrazu
+    private static final double ZOOM_STEP = 1.25;
+
+    private BufferedImage managed; // Kopia obrazu zgodna z ekranem - tylko ją rysujemy
+    private BufferedImage overlay; // Obraz rysowany na fragmencie obrazu (podgląd albo szczegóły w pełnej rozdzielczości)
+    private BufferedImage overlayCopy; // Kopia ostatniego overlay zgodna z ekranem, używana ponownie dla kolejnych
+    private Rectangle2D overlayRegion; // Fragment obrazu (we współrzędnych obrazu), na którym rysujemy overlay
+    private double scale = 1; // Piksele ekranu na piksel obrazu
+    private double offsetX; // Położenie lewego górnego rogu obrazu na ekranie
+    private double offsetY;
+    private boolean fit = true; // Czy dopasowywać obraz do rozmiaru komponentu
+    private final List<Runnable> viewListeners = new ArrayList<>();
+
+    public ImageViewer() {
+        setOpaque(true);
+        setBackground(Color.DARK_GRAY);
+        MouseAdapter mouse = new MouseAdapter() {
+            private Point dragStart;
+
+            @Override
+            public void mousePressed(MouseEvent e) {
+                dragStart = e.getPoint();
+            }
+
+            @Override
+            public void mouseDragged(MouseEvent e) {
+                if (dragStart != null && managed != null) {
+                    fit = false;
+                    offsetX += e.getX() - dragStart.x;
+                    offsetY += e.getY() - dragStart.y;
+                    dragStart = e.getPoint();
+                    viewChanged();
+                }
+            }
+
+            @Override
+            public void mouseWheelMoved(MouseWheelEvent e) {
+                zoom(Math.pow(ZOOM_STEP, -e.getPreciseWheelRotation()), e.getPoint());
+            }
+
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (e.getClickCount() == 2) {
+                    zoomToFit();
+                }
+            }
+        };
+        addMouseListener(mouse);
+        addMouseMotionListener(mouse);
+        addMouseWheelListener(mouse);
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                viewChanged();
+            }
+        });
+    }
+
+    // Nowy obraz (np. wynik efektu). Obraz tej samej wielkości co poprzedni zachowuje powiększenie i przesunięcie.
+    public void setImage(BufferedImage image) {
+        overlay = null;
+        overlayRegion = null;
+        if (managed == null || managed.getWidth() != image.getWidth() || managed.getHeight() != image.getHeight()) {
+            managed = createManagedImage(image.getWidth(), image.getHeight());
+            fit = true;
+            copy(image, new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+            viewChanged();
+            return;
+        }
+        copy(image, new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+        repaint();
+    }
+
+    // Zmienił się tylko fragment dirty obrazu - kopiujemy i odświeżamy tylko ten fragment
+    public void updateImage(BufferedImage image, Rectangle dirty) {
+        if (managed == null || managed.getWidth() != image.getWidth() || managed.getHeight() != image.getHeight()) {
+            setImage(image);
+            return;
+        }
+        Rectangle area = dirty.intersection(new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+        if (area.isEmpty()) {
+            return;
+        }
+        copy(image, area);
+        repaint(toScreen(area));
+    }
+
+    // Nowe piksele fragmentu obrazu, którego lewy górny róg leży w location (np. kafelek edytowany w miejscu)
+    public void updateRegion(BufferedImage part, Point location) {
+        if (managed == null) {
+            return;
+        }
+        Rectangle area = new Rectangle(location.x, location.y, part.getWidth(), part.getHeight())
+                .intersection(new Rectangle(0, 0, managed.getWidth(), managed.getHeight()));
+        if (area.isEmpty()) {
+            return;
+        }
+        Graphics2D g = managed.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(part, location.x, location.y, null);
+        g.dispose();
+        repaint(toScreen(area));
+    }
+
+    // Rysujemy image rozciągnięty na fragment region obrazu, aż do następnego setImage. Jak przy setImage trzymamy
+    // kopię, więc potok może od razu użyć bufora image ponownie (podglądy liczone w tle przychodzą jeden po drugim).
+    public void showOverlay(BufferedImage image, Rectangle2D region) {
+        if (overlayCopy == null || overlayCopy.getWidth() != image.getWidth() || overlayCopy.getHeight() != image.getHeight()) {
+            overlayCopy = createManagedImage(image.getWidth(), image.getHeight());
+        }
+        copy(image, overlayCopy, new Rectangle(0, 0, image.getWidth(), image.getHeight()));
+        overlay = overlayCopy;
+        overlayRegion = region;
+        repaint(toScreen(region));
+    }
+
+    public void clear() {
+        managed = null;
+        overlay = null;
+        overlayCopy = null;
+        overlayRegion = null;
+        repaint();
+    }
+
+    // Widoczny fragment obrazu we współrzędnych obrazu (pusty, jeśli nie ma obrazu)
+    public Rectangle getVisibleRegion() {
+        if (managed == null) {
+            return new Rectangle();
+        }
+        int x0 = (int) Math.floor(-offsetX / scale);
+        int y0 = (int) Math.floor(-offsetY / scale);
+        int x1 = (int) Math.ceil((getWidth() - offsetX) / scale);
+        int y1 = (int) Math.ceil((getHeight() - offsetY) / scale);
+        return new Rectangle(x0, y0, x1 - x0, y1 - y0).intersection(new Rectangle(0, 0, managed.getWidth(), managed.getHeight()));
+    }
+
+    // Wymiary wyświetlanego obrazu albo null, jeśli nie ma obrazu
+    public Dimension getImageSize() {
+        return managed == null ? null : new Dimension(managed.getWidth(), managed.getHeight());
+    }
+
+    public double getScale() {
+        return scale;
+    }
+
+    // Powiadomienie o zmianie powiększenia, przesunięcia albo rozmiaru komponentu (w wątku GUI)
+    public void addViewListener(Runnable listener) {
+        viewListeners.add(listener);
+    }
+
+    public void zoomToFit() {
+        fit = true;
+        viewChanged();
+    }
+
+    // Przybliżamy o factor tak, żeby punkt obrazu pod kursorem został w miejscu
+    public void zoom(double factor, Point anchor) {
+        if (managed == null) {
+            return;
+        }
+        double newScale = Math.max(Math.min(fitScale(), 1), Math.min(MAX_SCALE, scale * factor));
+        offsetX = anchor.x - (anchor.x - offsetX) * newScale / scale;
+        offsetY = anchor.y - (anchor.y - offsetY) * newScale / scale;
+        scale = newScale;
+        fit = false;
+        viewChanged();
+    }
+
+    @Override
+    protected void paintComponent(Graphics graphics) {
+        Graphics2D g = (Graphics2D) graphics.create();
+        try {
+            g.setColor(getBackground());
+            g.fillRect(0, 0, getWidth(), getHeight());
+            if (managed == null) {
+                return;
+            }
+            // Przy pomniejszeniu interpolacja wygładza obraz; przy powiększeniu pokazujemy wyraźne piksele
+            g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, scale < 1
+                    ? RenderingHints.VALUE_INTERPOLATION_BILINEAR : RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR);
+            Rectangle clip = g.getClipBounds() != null ? g.getClipBounds() : new Rectangle(0, 0, getWidth(), getHeight());
+            drawPart(g, managed, new Rectangle2D.Double(0, 0, managed.getWidth(), managed.getHeight()), clip);
+            if (overlay != null) {
+                drawPart(g, overlay, overlayRegion, clip);
+            }
+        } finally {
+            g.dispose();
+        }
+    }
+
+    // Rysujemy tylko tę część obrazu image (rozciągniętego na region obrazu), która wypada w obszarze clip ekranu
+    private void drawPart(Graphics2D g, BufferedImage image, Rectangle2D region, Rectangle clip) {
+        Rectangle2D screen = new Rectangle2D.Double(offsetX + region.getX() * scale, offsetY + region.getY() * scale,
+                region.getWidth() * scale, region.getHeight() * scale);
+        Rectangle2D visible = screen.createIntersection(clip);
+        if (visible.isEmpty()) {
+            return;
+        }
+        double pixelsX = image.getWidth() / screen.getWidth(); // Piksele obrazu image na piksel ekranu
+        double pixelsY = image.getHeight() / screen.getHeight();
+        int sx1 = (int) Math.floor((visible.getMinX() - screen.getX()) * pixelsX);
+        int sy1 = (int) Math.floor((visible.getMinY() - screen.getY()) * pixelsY);
+        int sx2 = Math.min(image.getWidth(), (int) Math.ceil((visible.getMaxX() - screen.getX()) * pixelsX));
+        int sy2 = Math.min(image.getHeight(), (int) Math.ceil((visible.getMaxY() - screen.getY()) * pixelsY));
+        int dx1 = (int) Math.round(screen.getX() + sx1 / pixelsX);
+        int dy1 = (int) Math.round(screen.getY() + sy1 / pixelsY);
+        int dx2 = (int) Math.round(screen.getX() + sx2 / pixelsX);
+        int dy2 = (int) Math.round(screen.getY() + sy2 / pixelsY);
+        g.drawImage(image, dx1, dy1, dx2, dy2, sx1, sy1, sx2, sy2, null);
+    }
+
+    private void copy(BufferedImage image, Rectangle area) {
+        copy(image, managed, area);
+    }
+
+    private static void copy(BufferedImage image, BufferedImage target, Rectangle area) {
+        Graphics2D g = target.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(image, area.x, area.y, area.x + area.width, area.y + area.height,
+                area.x, area.y, area.x + area.width, area.y + area.height, null);
+        g.dispose();
+    }
+
+    // Obraz w formacie ekranu (jeśli komponent nie jest jeszcze wyświetlany - w formacie domyślnego ekranu)
+    private BufferedImage createManagedImage(int width, int height) {
+        GraphicsConfiguration configuration = getGraphicsConfiguration();
+        if (configuration == null && !GraphicsEnvironment.isHeadless()) {
+            configuration = GraphicsEnvironment.getLocalGraphicsEnvironment().getDefaultScreenDevice().getDefaultConfiguration();
+        }
+        return configuration != null
+                ? configuration.createCompatibleImage(width, height, Transparency.OPAQUE)
+                : new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    }
+
+    private Rectangle toScreen(Rectangle2D region) {
+        int x = (int) Math.floor(offsetX + region.getX() * scale);
+        int y = (int) Math.floor(offsetY + region.getY() * scale);
+        int width = (int) Math.ceil(region.getWidth() * scale) + 2;
+        int height = (int) Math.ceil(region.getHeight() * scale) + 2;
+        return new Rectangle(x, y, width, height);
+    }
+
+    private double fitScale() {
+        if (managed == null || getWidth() == 0 || getHeight() == 0) {
+            return 1;
+        }
+        return Math.min((double) getWidth() / managed.getWidth(), (double) getHeight() / managed.getHeight());
+    }
+
+    // Po każdej zmianie widoku poprawiamy skalę i przesunięcie (obraz mniejszy od okna jest wyśrodkowany, większy nie
+    // może odsłonić pustego tła), odświeżamy komponent i powiadamiamy słuchaczy
+    private void viewChanged() {
+        if (managed != null) {
+            if (fit) {
+                scale = Math.min(1, fitScale()); // Małych obrazów nie powiększamy
+            }
+            offsetX = constrain(offsetX, managed.getWidth() * scale, getWidth());
+            offsetY = constrain(offsetY, managed.getHeight() * scale, getHeight());
+        }
+        repaint();
+        for (Runnable listener : viewListeners) {
+            listener.run();
+        }
+    }
+
+    private static double constrain(double offset, double imageSize, int viewSize) {
+        if (imageSize <= viewSize) {
+            return Math.floor((viewSize - imageSize) / 2);
+        }
+        return Math.max(viewSize - imageSize, Math.min(0, offset));
+    }
+}
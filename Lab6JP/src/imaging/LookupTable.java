@@ -0,0 +1,112 @@
+// Tablica przekodowania (LUT): dla każdej składowej r, g, b nowa wartość dla każdego z 256 poziomów. Dowolne
+// przekształcenie pojedynczych składowych (poziomy, krzywe, gamma) kosztuje wtedy trzy odczyty z tablicy na piksel,
+// a kilka kolejnych tablic składa się w jedną (then), więc cały ich ciąg to nadal trzy odczyty.
+
+package imaging;
+
+import java.util.Arrays;
+import java.util.function.IntUnaryOperator;
+
+public final class LookupTable {
+    private static final LookupTable IDENTITY = of(identityLevels());
+
+    // Wartości przesunięte już na miejsce składowej w pikselu, żeby apply tylko łączyło je operacją |
+    private final int[] red;
+    private final int[] green;
+    private final int[] blue;
+
+    private LookupTable(int[] red, int[] green, int[] blue) {
+        this.red = red;
+        this.green = green;
+        this.blue = blue;
+    }
+
+    public static LookupTable identity() {
+        return IDENTITY;
+    }
+
+    // Ta sama tablica dla wszystkich składowych
+    public static LookupTable of(int[] levels) {
+        return of(levels, levels, levels);
+    }
+
+    // Tablice po 256 wartości 0-255 dla składowych r, g, b
+    public static LookupTable of(int[] red, int[] green, int[] blue) {
+        return new LookupTable(shifted(red, 16), shifted(green, 8), shifted(blue, 0));
+    }
+
+    // Ta sama tablica dla wszystkich składowych, z wartościami level(0)..level(255) obciętymi do zakresu 0-255
+    public static LookupTable tabulate(IntUnaryOperator level) {
+        int[] levels = new int[Histogram.LEVELS];
+        for (int value = 0; value < levels.length; value++) {
+            levels[value] = Math.max(0, Math.min(255, level.applyAsInt(value)));
+        }
+        return of(levels);
+    }
+
+    private static int[] shifted(int[] levels, int shift) {
+        if (levels.length != Histogram.LEVELS) {
+            throw new IllegalArgumentException("Tablica LUT musi mieć " + Histogram.LEVELS + " wartości");
+        }
+        int[] result = new int[levels.length];
+        for (int level = 0; level < levels.length; level++) {
+            if (levels[level] < 0 || levels[level] > 255) {
+                throw new IllegalArgumentException("Wartość LUT poza zakresem 0-255: " + levels[level]);
+            }
+            result[level] = levels[level] << shift;
+        }
+        return result;
+    }
+
+    // Poziomy 0..255 - tablica, która niczego nie zmienia
+    public static int[] identityLevels() {
+        int[] levels = new int[Histogram.LEVELS];
+        for (int level = 0; level < levels.length; level++) {
+            levels[level] = level;
+        }
+        return levels;
+    }
+
+    public int apply(int pixel) {
+        return 0xff000000 | red[(pixel >> 16) & 0xff] | green[(pixel >> 8) & 0xff] | blue[pixel & 0xff];
+    }
+
+    // Złożenie: najpierw ta tablica, potem next
+    public LookupTable then(LookupTable next) {
+        int[] r = new int[Histogram.LEVELS];
+        int[] g = new int[Histogram.LEVELS];
+        int[] b = new int[Histogram.LEVELS];
+        for (int level = 0; level < Histogram.LEVELS; level++) {
+            r[level] = next.red[red[level] >> 16];
+            g[level] = next.green[green[level] >> 8];
+            b[level] = next.blue[blue[level]];
+        }
+        return new LookupTable(r, g, b);
+    }
+
+    public PixelEngine.Kernel kernel() {
+        return (src, dst, from, to) -> {
+            for (int i = from; i < to; i++) {
+                int pixel = src[i];
+                dst[i] = 0xff000000 | red[(pixel >> 16) & 0xff] | green[(pixel >> 8) & 0xff] | blue[pixel & 0xff];
+            }
+        };
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof LookupTable)) {
+            return false;
+        }
+        LookupTable other = (LookupTable) o;
+        return Arrays.equals(red, other.red) && Arrays.equals(green, other.green) && Arrays.equals(blue, other.blue);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * Arrays.hashCode(red) + Arrays.hashCode(green)) + Arrays.hashCode(blue);
+    }
+}
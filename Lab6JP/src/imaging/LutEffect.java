@@ -0,0 +1,16 @@
+// Efekt punktowy zdefiniowany tablicą LUT (krzywe, gamma, jasność, kontrast, posteryzacja, progowanie). Parametr
+// efektu służy tylko do zbudowania tablicy - raz na renderowanie - a samo przetwarzanie to trzy odczyty z tablicy
+// na piksel, niezależnie od tego, jak kosztowna jest funkcja tonalna. Sąsiednie efekty LUT w łańcuchu FusedKernel
+// składa w jedną tablicę.
+
+package imaging;
+
+public abstract class LutEffect implements PixelEffect {
+    @Override
+    public abstract LookupTable lookupTable(float parameter);
+
+    @Override
+    public PixelEngine.Kernel kernel(float parameter) {
+        return lookupTable(parameter).kernel();
+    }
+}
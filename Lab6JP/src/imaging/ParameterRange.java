@@ -0,0 +1,46 @@
+// Zakres parametru efektu: nazwa dla użytkownika, najmniejsza i największa dopuszczalna wartość oraz wartość domyślna.
+// Na tej podstawie interfejs może zbudować suwak, a przetwarzanie wsadowe - sprawdzić wartość podaną w opisie łańcucha.
+
+package imaging;
+
+public final class ParameterRange {
+    private final String label;
+    private final float min;
+    private final float max;
+    private final float defaultValue;
+
+    public ParameterRange(String label, float min, float max, float defaultValue) {
+        if (min > max || defaultValue < min || defaultValue > max) {
+            throw new IllegalArgumentException("Niepoprawny zakres parametru: " + label);
+        }
+        this.label = label;
+        this.min = min;
+        this.max = max;
+        this.defaultValue = defaultValue;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public float getMin() {
+        return min;
+    }
+
+    public float getMax() {
+        return max;
+    }
+
+    public float getDefaultValue() {
+        return defaultValue;
+    }
+
+    public boolean contains(float value) {
+        return value >= min && value <= max;
+    }
+
+    @Override
+    public String toString() {
+        return label + " (" + min + "-" + max + ")";
+    }
+}
@@ -0,0 +1,59 @@
+// Efekt dostarczany przez ServiceLoader. Wbudowane efekty są wymienione w pliku META-INF/services/imaging.PixelEffect;
+// efekt z osobnego jara wystarczy dopisać do takiego pliku w tym jarze, a pojawi się w EffectRegistry (i na przyciskach).
+// Efekt wybieramy raz na obraz, a nie raz na piksel: kernel każdego efektu to osobna pętla, którą JIT widzi tylko
+// z jednym rodzajem operacji.
+// Metadane mówią potokowi, jak efekt wolno łączyć z innymi. Efekt punktowy zależy tylko od danego piksela, więc
+// FusedKernel może go wykonać w tej samej porcji pikseli co sąsiednie efekty; efekt liniowy ma dodatkowo macierz kolorów,
+// którą można przemnożyć z macierzami sąsiadów (o ile daje to te same piksele, patrz isMatrixExact). Efekt, który
+// zmienia każdą składową niezależnie od pozostałych, może podać tablicę LUT - kolejne takie efekty FusedKernel składa
+// w jedną tablicę. Tablica musi dawać dokładnie te same piksele co kernel efektu. Efekt przestrzenny (zależny od
+// sąsiednich pikseli) nie jest składany.
+
+package imaging;
+
+public interface PixelEffect {
+    // Nazwa używana w EffectStep i w opisie łańcucha efektów, np. "grayscale"
+    String getName();
+
+    // Nazwa dla użytkownika, np. "Czarno-białe"
+    String getLabel();
+
+    // Zakres parametru albo null, jeśli efekt nie ma parametru
+    default ParameterRange getParameterRange() {
+        return null;
+    }
+
+    default boolean isPointwise() {
+        return true;
+    }
+
+    // Czy efekt to przekształcenie afiniczne składowych r, g, b opisane przez colorMatrix
+    default boolean isLinear() {
+        return false;
+    }
+
+    // Macierz 3x4 (wiersze r, g, b; w każdym 3 współczynniki i przesunięcie) - tylko dla efektów liniowych
+    default double[] colorMatrix(float parameter) {
+        throw new UnsupportedOperationException(getName() + " nie jest efektem liniowym");
+    }
+
+    // Czy dla składowych 0-255 macierz zawsze daje wynik w zakresie 0-255 (jeśli nie, wynik trzeba przyciąć przed
+    // złożeniem z kolejną macierzą)
+    default boolean preservesRange() {
+        return true;
+    }
+
+    // Czy kernel efektu liniowego daje dokładnie wynik macierzy zaokrąglony w dół i przycięty do 0-255, bez własnych
+    // przybliżeń. Tylko wtedy złożenie macierzy w FusedKernel daje te same piksele co liczenie krok po kroku.
+    default boolean isMatrixExact() {
+        return false;
+    }
+
+    // Tablica LUT efektu albo null, jeśli składowe wyniku zależą od więcej niż jednej składowej wejścia
+    default LookupTable lookupTable(float parameter) {
+        return null;
+    }
+
+    // Kernel wykonujący sam ten efekt
+    PixelEngine.Kernel kernel(float parameter);
+}
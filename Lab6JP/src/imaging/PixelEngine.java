@@ -0,0 +1,116 @@
+// Wspólny silnik przetwarzania pikseli. Zamiast wywoływać getRGB/setRGB dla każdego piksela (co przechodzi przez
+// ColorModel), pracujemy bezpośrednio na tablicy int[] z DataBufferInt obrazu w formacie TYPE_INT_ARGB.
+
+package imaging;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.DataBufferInt;
+import java.awt.image.Raster;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+
+public final class PixelEngine {
+    private static final int[] ARGB_MASKS = {0x00ff0000, 0x0000ff00, 0x000000ff, 0xff000000};
+
+    // Kernel przetwarzający piksele o indeksach [from, to) z tablicy src do tablicy dst (src i dst mogą być tą samą tablicą)
+    @FunctionalInterface
+    public interface Kernel {
+        void apply(int[] src, int[] dst, int from, int to);
+    }
+
+    private PixelEngine() {
+    }
+
+    // Metoda sprowadzająca dowolny obraz do formatu TYPE_INT_ARGB (jeśli obraz już ma ten format, zwracamy go bez kopiowania)
+    public static BufferedImage toIntArgb(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB && isIntBacked(image)) {
+            return image;
+        }
+        BufferedImage converted = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = converted.createGraphics();
+        g.setComposite(AlphaComposite.Src);
+        g.drawImage(image, 0, 0, null);
+        g.dispose();
+        return converted;
+    }
+
+    // Sprawdzamy, czy piksele obrazu leżą w jednej ciągłej tablicy int[] (bez przesunięć i dodatkowych odstępów w wierszach)
+    public static boolean isIntBacked(BufferedImage image) {
+        int type = image.getType();
+        if (type != BufferedImage.TYPE_INT_ARGB && type != BufferedImage.TYPE_INT_RGB) {
+            return false;
+        }
+        WritableRaster raster = image.getRaster();
+        if (!(raster.getDataBuffer() instanceof DataBufferInt)
+                || !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)) {
+            return false;
+        }
+        SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) raster.getSampleModel();
+        return model.getScanlineStride() == image.getWidth()
+                && raster.getDataBuffer().getOffset() == 0
+                && raster.getSampleModelTranslateX() == 0
+                && raster.getSampleModelTranslateY() == 0;
+    }
+
+    // Zwracamy tablicę pikseli, na której bezpośrednio opiera się obraz (tylko dla obrazów, dla których isIntBacked == true)
+    public static int[] data(BufferedImage image) {
+        return ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+    }
+
+    // Obraz TYPE_INT_ARGB oparty bezpośrednio o podaną tablicę pikseli (bez kopiowania), np. o bufor z BufferPool
+    public static BufferedImage wrap(int[] pixels, int width, int height) {
+        DataBufferInt buffer = new DataBufferInt(pixels, width * height);
+        WritableRaster raster = Raster.createPackedRaster(buffer, width, height, width, ARGB_MASKS, null);
+        return new BufferedImage(ColorModel.getRGBdefault(), raster, false, null);
+    }
+
+    // Odczytujemy piksele obrazu do tablicy - dla obrazów opartych o int[] bez kopiowania, dla pozostałych jednym wywołaniem getRGB
+    public static int[] readPixels(BufferedImage image) {
+        if (isIntBacked(image)) {
+            return data(image);
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        return image.getRGB(0, 0, width, height, null, 0, width);
+    }
+
+    // Metoda tworząca nowy obraz TYPE_INT_ARGB będący wynikiem działania kernela na obrazie źródłowym
+    public static BufferedImage apply(BufferedImage source, Kernel kernel) {
+        BufferedImage result = new BufferedImage(source.getWidth(), source.getHeight(), BufferedImage.TYPE_INT_ARGB);
+        int[] src = readPixels(source);
+        int[] dst = data(result);
+        kernel.apply(src, dst, 0, dst.length);
+        return result;
+    }
+
+    // Metoda modyfikująca obraz w miejscu; dla rastrów innych niż int[] przetwarzamy kopię i zapisujemy ją jednym setRGB
+    public static void applyInPlace(BufferedImage image, Kernel kernel) {
+        if (isIntBacked(image)) {
+            int[] pixels = data(image);
+            kernel.apply(pixels, pixels, 0, pixels.length);
+        } else {
+            int width = image.getWidth();
+            int[] pixels = readPixels(image);
+            kernel.apply(pixels, pixels, 0, pixels.length);
+            image.setRGB(0, 0, width, image.getHeight(), pixels, 0, width);
+        }
+    }
+
+    // Metoda zwracająca kernel dla efektu o podanej nazwie (z domyślną wartością parametru); efekty są w EffectRegistry
+    public static Kernel kernel(String effect) {
+        return EffectStep.of(effect).kernel();
+    }
+
+    // Kernel kopiujący piksele bez zmian
+    public static Kernel identity() {
+        return PixelEngine::copy;
+    }
+
+    private static void copy(int[] src, int[] dst, int from, int to) {
+        if (src != dst) {
+            System.arraycopy(src, from, dst, from, to - from);
+        }
+    }
+}
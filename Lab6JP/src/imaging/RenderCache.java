@@ -0,0 +1,465 @@
+// Pamięć podręczna gotowych wyników renderowania, wspólna dla wszystkich potoków. Kluczem jest odcisk pikseli obrazu
+// źródłowego (nie obiekt obrazu - ten sam plik wczytany ponownie daje ten sam klucz) i lista kroków od źródła do wyniku.
+// Kroki porównujemy przez EffectStep.equals, więc efekty niosące własne dane (krzywe, auto-poziomy) rozróżniamy po
+// danych, a nie tylko po nazwie. Przełączanie między kilkoma wyglądami tego samego obrazu (np. sepia i czerń-biel)
+// nie liczy więc niczego od nowa.
+// Wyniki trzymamy w LRU ograniczonym łączną liczbą bajtów pikseli. Wyniki wypchnięte z LRU mogą jeszcze zostać jako
+// miękkie referencje (GC zwolni je dopiero przy braku pamięci) albo zostać zapisane w katalogu na dysku, skąd
+// doczytanie jest wciąż szybsze niż ponowne przeliczenie długiego łańcucha efektów przestrzennych.
+// Zwracany obraz jest współdzielony z pamięcią podręczną - wywołujący nie może go modyfikować. get, find i put
+// zapisują wywołującego jako użytkownika obrazu; gdy obraz przestaje mu być potrzebny, oddaje go przez release. Bufor
+// wyniku wypchniętego z LRU wraca do BufferPool dopiero wtedy, gdy nie używa go już nikt, więc pamięć podręczna nie
+// odbiera potokom odzyskiwania buforów.
+
+package imaging;
+
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.lang.ref.SoftReference;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+public final class RenderCache {
+    private static final RenderCache SHARED = new RenderCache(Runtime.getRuntime().maxMemory() / 8);
+
+    private final long maxBytes; // Górna granica pamięci zajmowanej przez wyniki w LRU
+    private final LinkedHashMap<Key, BufferedImage> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long bytes;
+    private boolean softReferences;
+    private final Map<Key, SoftReference<BufferedImage>> soft = new HashMap<>(); // Wyniki wypchnięte z LRU
+    private Path spillDirectory; // Katalog na wyniki wypchnięte z LRU (null - bez zapisu na dysk)
+    private long maxSpillBytes;
+    private final LinkedHashMap<Key, Spilled> spilled = new LinkedHashMap<>(16, 0.75f, true);
+    private long spilledBytes;
+    private final Map<BufferedImage, Integer> borrowers = new IdentityHashMap<>(); // Ile potoków używa obrazu
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong softHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    public RenderCache(long maxBytes) {
+        if (maxBytes < 0) {
+            throw new IllegalArgumentException("Rozmiar pamięci podręcznej nie może być ujemny");
+        }
+        this.maxBytes = maxBytes;
+    }
+
+    public static RenderCache shared() {
+        return SHARED;
+    }
+
+    // Wyniki wypchnięte z LRU zostają jako miękkie referencje, dopóki GC ich nie zwolni
+    public synchronized void setSoftReferences(boolean softReferences) {
+        this.softReferences = softReferences;
+        if (!softReferences) {
+            soft.clear();
+        }
+    }
+
+    // Wyniki wypchnięte z LRU zapisujemy w katalogu directory (łącznie najwyżej maxBytes bajtów); null wyłącza zapis
+    public synchronized void setSpillDirectory(Path directory, long maxBytes) throws IOException {
+        if (directory != null) {
+            Files.createDirectories(directory);
+        }
+        deleteSpilled(new ArrayList<>(spilled.values()));
+        spilled.clear();
+        spilledBytes = 0;
+        this.spillDirectory = directory;
+        this.maxSpillBytes = maxBytes;
+    }
+
+    // Odcisk pikseli obrazu: 64-bitowy skrót wymiarów i wszystkich pikseli. Liczymy go raz na obraz źródłowy
+    // (EffectPipeline go zapamiętuje), a cztery niezależne skróty przeplatanych pikseli nie czekają na siebie nawzajem.
+    public static long fingerprint(BufferedImage image) {
+        int[] pixels = PixelEngine.readPixels(image);
+        long h0 = 0xcbf29ce484222325L;
+        long h1 = h0 ^ image.getWidth();
+        long h2 = h0 ^ image.getHeight();
+        long h3 = h0 ^ pixels.length;
+        int i = 0;
+        for (; i + 3 < pixels.length; i += 4) {
+            h0 = (h0 ^ pixels[i]) * 0x100000001b3L;
+            h1 = (h1 ^ pixels[i + 1]) * 0x100000001b3L;
+            h2 = (h2 ^ pixels[i + 2]) * 0x100000001b3L;
+            h3 = (h3 ^ pixels[i + 3]) * 0x100000001b3L;
+        }
+        for (; i < pixels.length; i++) {
+            h0 = (h0 ^ pixels[i]) * 0x100000001b3L;
+        }
+        long h = h0;
+        for (long lane : new long[]{h1, h2, h3}) {
+            h = Long.rotateLeft(h, 17) ^ lane;
+            h *= 0x9e3779b97f4a7c15L;
+        }
+        return h ^ (h >>> 29);
+    }
+
+    // Wynik dla klucza albo null. Trafienie w miękkich referencjach lub na dysku wraca do LRU.
+    public BufferedImage get(Key key) {
+        Map.Entry<Key, BufferedImage> hit = find(List.of(key));
+        return hit != null ? hit.getValue() : null;
+    }
+
+    // Pierwszy zapamiętany wynik (razem z jego kluczem) spośród kluczy candidates (np. od najdłuższego łańcucha kroków do najkrótszego). Całe
+    // zapytanie liczy się jako jedno trafienie albo jedno chybienie. Każdy klucz sprawdzamy najpierw w pamięci - plik
+    // z dysku czytamy dopiero wtedy, gdy żadnego z kluczy nie ma w LRU ani w miękkich referencjach.
+    public Map.Entry<Key, BufferedImage> find(List<Key> candidates) {
+        Key found = null;
+        Spilled file = null;
+        BufferedImage image = null;
+        boolean softHit = false;
+        synchronized (this) {
+            for (Key key : candidates) {
+                image = entries.get(key);
+                if (image != null) {
+                    hits.incrementAndGet();
+                    retain(image);
+                    return Map.entry(key, image);
+                }
+                SoftReference<BufferedImage> reference = soft.get(key);
+                image = reference != null ? reference.get() : null;
+                if (image != null) {
+                    soft.remove(key);
+                    // Do put poza blokadą obrazu nie ma ani w LRU, ani w soft - bez tego użycia ostatni release innego
+                    // potoku oddałby jego bufor do puli, zanim wróci do LRU
+                    retain(image);
+                    softHit = true;
+                    softHits.incrementAndGet();
+                    found = key;
+                    break;
+                }
+                if (file == null && spilled.containsKey(key)) {
+                    file = spilled.get(key);
+                    found = key;
+                }
+            }
+        }
+        if (image == null && file != null) {
+            image = file.read();
+            if (image != null) {
+                diskHits.incrementAndGet();
+            }
+        }
+        if (image == null) {
+            misses.incrementAndGet();
+            return null;
+        }
+        put(found, image);
+        if (softHit) {
+            release(image); // Wywołującemu zostaje użycie z put
+        }
+        return Map.entry(found, image);
+    }
+
+    // Zapamiętujemy wynik (od tej chwili nie wolno go modyfikować, a zamiast do BufferPool oddaje się go przez release)
+    public void put(Key key, BufferedImage image) {
+        List<Map.Entry<Key, BufferedImage>> evicted = new ArrayList<>();
+        List<BufferedImage> unused = new ArrayList<>();
+        synchronized (this) {
+            store(key, image, evicted, unused);
+        }
+        spill(evicted); // Zapis na dysk poza blokadą - w tym czasie inne wątki mogą korzystać z pamięci podręcznej
+        unused.forEach(RenderCache::recycle);
+    }
+
+    // Kolejne użycie obrazu z pamięci podręcznej (każde trzeba zakończyć przez release)
+    public synchronized void retain(BufferedImage image) {
+        borrowers.merge(image, 1, Integer::sum);
+    }
+
+    // Potok przestał używać obrazu; jeśli obrazu nie ma już w pamięci podręcznej i nie używa go nikt inny, jego bufor
+    // wraca do BufferPool
+    public void release(BufferedImage image) {
+        synchronized (this) {
+            Integer count = borrowers.get(image);
+            if (count == null) {
+                return;
+            }
+            if (count > 1) {
+                borrowers.put(image, count - 1);
+                return;
+            }
+            borrowers.remove(image);
+            if (isHeld(image)) {
+                return;
+            }
+        }
+        recycle(image);
+    }
+
+    // Czy obraz jest w LRU albo w miękkich referencjach (wtedy jego bufora nie wolno oddać do puli)
+    private boolean isHeld(BufferedImage image) {
+        if (entries.containsValue(image)) {
+            return true;
+        }
+        for (SoftReference<BufferedImage> reference : soft.values()) {
+            if (reference.get() == image) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void recycle(BufferedImage image) {
+        if (PixelEngine.isIntBacked(image)) {
+            BufferPool.shared().release(PixelEngine.data(image));
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+        bytes = 0;
+        soft.clear();
+        deleteSpilled(new ArrayList<>(spilled.values()));
+        spilled.clear();
+        spilledBytes = 0;
+    }
+
+    // Zapisujemy wynik i wypychamy najdawniej używane; evicted - wyniki do zapisania na dysku (każdy z jednym użyciem,
+    // które kończy spill), unused - obrazy, których bufory można od razu oddać do puli
+    private void store(Key key, BufferedImage image, List<Map.Entry<Key, BufferedImage>> evicted, List<BufferedImage> unused) {
+        retain(image); // Przed wypychaniem - wynik większy niż cały limit wypada od razu, ale wywołujący go jeszcze używa
+        BufferedImage previous = entries.put(key, image);
+        if (previous != null) {
+            bytes -= bytes(previous);
+            if (previous != image && !borrowers.containsKey(previous) && !isHeld(previous)) {
+                unused.add(previous); // Ten sam łańcuch policzony równolegle przez dwa potoki
+            }
+        }
+        bytes += bytes(image);
+        Iterator<Map.Entry<Key, BufferedImage>> eldest = entries.entrySet().iterator();
+        while (bytes > maxBytes && eldest.hasNext()) {
+            Map.Entry<Key, BufferedImage> entry = eldest.next();
+            eldest.remove();
+            bytes -= bytes(entry.getValue());
+            evictions.incrementAndGet();
+            if (softReferences) {
+                soft.put(entry.getKey(), new SoftReference<>(entry.getValue()));
+            }
+            if (spillDirectory != null && !spilled.containsKey(entry.getKey())) {
+                // Zapis czyta piksele poza blokadą - do tego czasu obraz jest używany przez spill, więc ani release
+                // pożyczającego go potoku, ani unused nie odda jego bufora do puli; oddaje go release po zapisie
+                retain(entry.getValue());
+                evicted.add(Map.entry(entry.getKey(), entry.getValue()));
+            } else if (!softReferences && !borrowers.containsKey(entry.getValue()) && !entries.containsValue(entry.getValue())) {
+                unused.add(entry.getValue());
+            }
+        }
+        soft.values().removeIf(reference -> reference.get() == null); // Wpisy zwolnione już przez GC
+    }
+
+    private void spill(List<Map.Entry<Key, BufferedImage>> evicted) {
+        for (Map.Entry<Key, BufferedImage> entry : evicted) {
+            Path directory;
+            synchronized (this) {
+                directory = spillDirectory;
+            }
+            Spilled file;
+            try {
+                file = directory != null ? Spilled.write(directory, entry.getValue()) : null;
+            } finally {
+                release(entry.getValue()); // Użycie z store - piksele są już zapisane
+            }
+            if (file == null) {
+                continue;
+            }
+            List<Spilled> removed = new ArrayList<>();
+            synchronized (this) {
+                if (directory.equals(spillDirectory) && !spilled.containsKey(entry.getKey())) {
+                    spilled.put(entry.getKey(), file);
+                    spilledBytes += file.bytes;
+                    Iterator<Spilled> eldest = spilled.values().iterator();
+                    while (spilledBytes > maxSpillBytes && eldest.hasNext()) {
+                        Spilled old = eldest.next();
+                        eldest.remove();
+                        spilledBytes -= old.bytes;
+                        removed.add(old);
+                    }
+                } else {
+                    removed.add(file);
+                }
+            }
+            deleteSpilled(removed);
+        }
+    }
+
+    private static void deleteSpilled(List<Spilled> files) {
+        for (Spilled file : files) {
+            try {
+                Files.deleteIfExists(file.path);
+            } catch (IOException ignored) {
+                // Plik w katalogu tymczasowym - najwyżej zostanie do końca działania programu (deleteOnExit)
+            }
+        }
+    }
+
+    private static long bytes(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight() * Integer.BYTES;
+    }
+
+    // Trafienia w LRU, w miękkich referencjach i na dysku łącznie
+    public long getHits() {
+        return hits.get() + softHits.get() + diskHits.get();
+    }
+
+    public long getSoftHits() {
+        return softHits.get();
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    // Udział trafień we wszystkich zapytaniach (0, jeśli nie było zapytań)
+    public double getHitRatio() {
+        long hit = getHits();
+        long total = hit + misses.get();
+        return total == 0 ? 0 : (double) hit / total;
+    }
+
+    public synchronized long getBytes() {
+        return bytes;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    @Override
+    public synchronized String toString() {
+        return String.format("RenderCache[%d wyników, %d MB, trafienia %d (miękkie %d, dysk %d), chybienia %d, wypchnięte %d]",
+                entries.size(), bytes >> 20, getHits(), softHits.get(), diskHits.get(), misses.get(), evictions.get());
+    }
+
+    // Klucz wyniku: odcisk obrazu źródłowego, jego wymiary i kroki od źródła do wyniku
+    public static final class Key {
+        private final long fingerprint;
+        private final int width;
+        private final int height;
+        private final List<EffectStep> steps;
+
+        private Key(long fingerprint, int width, int height, List<EffectStep> steps) {
+            this.fingerprint = fingerprint;
+            this.width = width;
+            this.height = height;
+            this.steps = List.copyOf(steps);
+        }
+
+        public static Key of(long fingerprint, BufferedImage source, List<EffectStep> steps) {
+            return new Key(fingerprint, source.getWidth(), source.getHeight(), steps);
+        }
+
+        public List<EffectStep> getSteps() {
+            return steps;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return fingerprint == other.fingerprint && width == other.width && height == other.height
+                    && steps.equals(other.steps);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(fingerprint, width, height, steps);
+        }
+
+        // Opis łańcucha, np. "3f2a...@800x600: grayscale -> saturation(1.5)"
+        @Override
+        public String toString() {
+            return String.format("%016x@%dx%d: ", fingerprint, width, height)
+                    + (steps.isEmpty() ? "-" : steps.stream().map(EffectStep::toString).collect(Collectors.joining(" -> ")));
+        }
+    }
+
+    // Wynik zapisany na dysku: surowe piksele ARGB, wiersz po wierszu
+    private static final class Spilled {
+        final Path path;
+        final int width;
+        final int height;
+        final long bytes;
+
+        private Spilled(Path path, int width, int height) {
+            this.path = path;
+            this.width = width;
+            this.height = height;
+            this.bytes = (long) width * height * Integer.BYTES;
+        }
+
+        // Null, jeśli zapis się nie udał (np. brak miejsca) - wynik po prostu nie trafia na dysk
+        static Spilled write(Path directory, BufferedImage image) {
+            int[] pixels = PixelEngine.readPixels(image);
+            if (pixels.length > Integer.MAX_VALUE / Integer.BYTES) {
+                return null; // Nie mieści się w jednym buforze bajtów
+            }
+            Path path = null;
+            try {
+                path = Files.createTempFile(directory, "render", ".pixels");
+                path.toFile().deleteOnExit();
+                ByteBuffer buffer = ByteBuffer.allocate(pixels.length * Integer.BYTES).order(ByteOrder.nativeOrder());
+                buffer.asIntBuffer().put(pixels);
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    while (buffer.hasRemaining()) {
+                        channel.write(buffer);
+                    }
+                }
+                return new Spilled(path, image.getWidth(), image.getHeight());
+            } catch (IOException e) {
+                if (path != null) {
+                    deleteSpilled(List.of(new Spilled(path, 0, 0)));
+                }
+                return null;
+            }
+        }
+
+        // Null, jeśli pliku już nie ma (został usunięty przez wypchnięcie z LRU dysku)
+        BufferedImage read() {
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) bytes).order(ByteOrder.nativeOrder());
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // Czytamy do końca pliku
+                }
+                if (buffer.hasRemaining()) {
+                    return null;
+                }
+                buffer.flip();
+                int[] pixels = new int[width * height];
+                buffer.asIntBuffer().get(pixels);
+                return PixelEngine.wrap(pixels, width, height);
+            } catch (IOException e) {
+                return null;
+            }
+        }
+    }
+}
@@ -0,0 +1,127 @@
+// Planista renderowania sterowanego suwakiem: zamiast uruchamiać nowy SwingWorker dla każdego zdarzenia, trzymamy
+// co najwyżej jedno zadanie w toku i jedno oczekujące (najnowsze). Każde zgłoszenie dostaje numer generacji;
+// zadanie w toku, którego generacja jest już nieaktualna, przerywa się na najbliższym pasie wierszy, a jego wynik
+// jest odrzucany. Metody submit i cancel wywołujemy w wątku GUI.
+// Gotowe pasy wyniku mogą być pokazywane jeszcze w trakcie liczenia: SwingWorker zbiera zgłoszenia z publish i oddaje je
+// do process najwyżej około 30 razy na sekundę, a my łączymy je w jeden prostokąt do odświeżenia.
+
+package imaging;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.BiConsumer;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.function.IntConsumer;
+
+public final class RenderScheduler {
+
+    // Zadanie renderujące, które sprawdza cancelled co pewien czas, raportuje postęp w procentach i zgłasza gotowe pasy
+    @FunctionalInterface
+    public interface RenderJob {
+        BufferedImage render(BooleanSupplier cancelled, IntConsumer progress, TileExecutor.BandListener bands);
+    }
+
+    private final Consumer<BufferedImage> onResult;
+    private final BiConsumer<BufferedImage, Rectangle> onPartial; // Gotowy fragment wyniku (może być null)
+    private final Consumer<Exception> onError;
+    private final AtomicLong generation = new AtomicLong(); // Czytana także z wątków roboczych
+
+    private Worker running; // Zadanie w toku (tylko wątek GUI)
+    private RenderJob pendingJob; // Najnowsze oczekujące zadanie (tylko wątek GUI)
+
+    public RenderScheduler(Consumer<BufferedImage> onResult, Consumer<Exception> onError) {
+        this(onResult, null, onError);
+    }
+
+    public RenderScheduler(Consumer<BufferedImage> onResult, BiConsumer<BufferedImage, Rectangle> onPartial,
+                           Consumer<Exception> onError) {
+        this.onResult = onResult;
+        this.onPartial = onPartial;
+        this.onError = onError;
+    }
+
+    // Zgłaszamy nowe zadanie; wszystkie wcześniejsze stają się nieaktualne
+    public void submit(RenderJob job) {
+        long current = generation.incrementAndGet();
+        if (running != null) {
+            pendingJob = job; // Zastępujemy poprzednie oczekujące zadanie - liczy się tylko najnowsze
+            return;
+        }
+        start(job, current);
+    }
+
+    // Porzucamy zadanie w toku i oczekujące (np. gdy użytkownik znów przeciąga suwak i wystarczy podgląd)
+    public void cancel() {
+        generation.incrementAndGet();
+        pendingJob = null;
+    }
+
+    public boolean isBusy() {
+        return running != null;
+    }
+
+    private void start(RenderJob job, long jobGeneration) {
+        running = new Worker(job, jobGeneration);
+        running.execute();
+    }
+
+    private final class Worker extends SwingWorker<BufferedImage, Rectangle> {
+        private final RenderJob job;
+        private final long jobGeneration;
+        private volatile BufferedImage partial; // Obraz, do którego trafiają zgłaszane pasy
+
+        Worker(RenderJob job, long jobGeneration) {
+            this.job = job;
+            this.jobGeneration = jobGeneration;
+        }
+
+        private boolean isStale() {
+            return isCancelled() || generation.get() != jobGeneration;
+        }
+
+        @Override
+        protected BufferedImage doInBackground() {
+            return job.render(this::isStale, this::setProgress, onPartial == null ? null : (image, band) -> {
+                partial = image;
+                publish(band);
+            });
+        }
+
+        @Override
+        protected void process(List<Rectangle> bands) {
+            if (isStale()) {
+                return;
+            }
+            Rectangle dirty = new Rectangle(bands.get(0));
+            for (Rectangle band : bands) {
+                dirty.add(band);
+            }
+            onPartial.accept(partial, dirty);
+        }
+
+        @Override
+        protected void done() {
+            running = null;
+            try {
+                BufferedImage result = get();
+                if (!isStale() && result != null) {
+                    onResult.accept(result);
+                }
+            } catch (InterruptedException | ExecutionException e) {
+                if (!isStale()) {
+                    onError.accept(e);
+                }
+            }
+            if (pendingJob != null) {
+                RenderJob next = pendingJob;
+                pendingJob = null;
+                start(next, generation.get());
+            }
+        }
+    }
+}
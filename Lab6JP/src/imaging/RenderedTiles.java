@@ -0,0 +1,63 @@
+// Wynik łańcucha efektów punktowych w pełnej rozdzielczości pliku, liczony kafelek po kafelku: kafelek źródła (TiledImage
+// pliku) -> kernel łańcucha -> writeTile do drugiego obrazu kafelkowego o tym samym podziale. Kafelek liczymy przy
+// pierwszej prośbie o obszar, który go obejmuje (np. przy przesuwaniu powiększonego widoku), i tylko raz. Wynik, tak jak
+// źródło, leży poza stertą, a nadmiarowe kafelki trafiają do pliku tymczasowego - wielkość obrazu nie zależy od sterty.
+
+package imaging;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.util.List;
+
+final class RenderedTiles implements AutoCloseable {
+    private final TiledImage source;
+    private final List<EffectStep> steps;
+    private final PixelEngine.Kernel kernel;
+    private final TiledImage result;
+    private final boolean[] rendered; // Czy kafelek wyniku jest już policzony
+
+    RenderedTiles(TiledImage source, List<EffectStep> steps, PixelEngine.Kernel kernel) throws IOException {
+        this.source = source;
+        this.steps = List.copyOf(steps);
+        this.kernel = kernel;
+        this.result = new TiledImage(source.getWidth(), source.getHeight(), source.getTileSize(),
+                TiledImage.DEFAULT_RESIDENT_TILES, null);
+        this.rendered = new boolean[source.getTilesX() * source.getTilesY()];
+    }
+
+    List<EffectStep> getSteps() {
+        return steps;
+    }
+
+    // Fragment wyniku; brakujące kafelki, które go obejmują, liczymy najpierw
+    synchronized BufferedImage toBufferedImage(Rectangle region) throws IOException {
+        Rectangle clipped = region.intersection(new Rectangle(0, 0, source.getWidth(), source.getHeight()));
+        int tileSize = source.getTileSize();
+        int[] pixels = new int[tileSize * tileSize];
+        for (int ty = clipped.y / tileSize; ty * tileSize < clipped.y + clipped.height; ty++) {
+            for (int tx = clipped.x / tileSize; tx * tileSize < clipped.x + clipped.width; tx++) {
+                int index = ty * source.getTilesX() + tx;
+                if (!rendered[index]) {
+                    render(tx, ty, pixels);
+                    rendered[index] = true;
+                }
+            }
+        }
+        return result.toBufferedImage(clipped, 1);
+    }
+
+    // Kernel punktowy liczymy w miejscu, na tablicy kafelka
+    private void render(int tx, int ty, int[] pixels) throws IOException {
+        Rectangle bounds = source.tileBounds(tx, ty);
+        source.readTile(tx, ty, pixels);
+        kernel.apply(pixels, pixels, 0, bounds.width * bounds.height);
+        result.writeTile(tx, ty, pixels);
+    }
+
+    // Zamykamy tylko kafelki wyniku - kafelki źródła należą do potoku
+    @Override
+    public synchronized void close() throws IOException {
+        result.close();
+    }
+}
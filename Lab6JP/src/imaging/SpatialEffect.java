@@ -0,0 +1,43 @@
+// Efekt przestrzenny: piksel wyniku zależy od sąsiednich pikseli obrazu wejściowego (rozmycie, wyostrzanie, krawędzie).
+// Takiego efektu nie da się złożyć z sąsiednimi efektami w jedno przejście ani liczyć w miejscu, więc zamiast jednego
+// kernela efekt wykonuje jeden lub kilka przebiegów przez Passes - każdy przebieg czyta całą tablicę wejściową i zapisuje
+// całą wyjściową, a między przebiegami wszystkie pasy są już gotowe. Efekty przestrzenne rejestrujemy w tym samym
+// pliku META-INF/services/imaging.PixelEffect co punktowe.
+
+package imaging;
+
+public interface SpatialEffect extends PixelEffect {
+    // Wykonawca przebiegów dostarczany przez EffectChain (równolegle na pasach wierszy albo w bieżącym wątku)
+    interface Passes {
+        // Kernel dostaje zakresy [from, to) obejmujące całe wiersze; false, jeśli zadanie anulowano
+        boolean run(int[] src, int[] dst, PixelEngine.Kernel kernel);
+
+        // Tymczasowy bufor o rozmiarze obrazu (z przypadkową zawartością); wraca do puli po zakończeniu efektu
+        int[] buffer();
+    }
+
+    @Override
+    default boolean isPointwise() {
+        return false;
+    }
+
+    @Override
+    default PixelEngine.Kernel kernel(float parameter) {
+        throw new UnsupportedOperationException(getName() + " jest efektem przestrzennym");
+    }
+
+    // Jak daleko od piksela wyniku leżą czytane piksele - o tyle trzeba powiększyć fragment obrazu liczony osobno
+    int getRadius(float parameter);
+
+    // Liczba wywołań Passes.run w render (do raportowania postępu)
+    int getPassCount(float parameter);
+
+    // Wartość parametru dla obrazu przeskalowanego o scale względem obrazu, dla którego ją wybrano (np. promień
+    // rozmycia na pomniejszonym podglądzie); domyślnie parametr nie zależy od skali
+    default float scaleParameter(float parameter, double scale) {
+        return parameter;
+    }
+
+    // Liczymy efekt z src do dst (różne tablice obrazu width x height); false, jeśli zadanie anulowano
+    boolean render(int[] src, int[] dst, int width, int height, float parameter, Passes passes);
+}
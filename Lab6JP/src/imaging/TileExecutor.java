@@ -0,0 +1,196 @@
+// Równoległe wykonywanie kerneli PixelEngine na pasach wierszy obrazu z użyciem ForkJoinPool. Każdy pas zapisuje
+// wynik bezpośrednio do tablicy obrazu docelowego, więc nie trzeba niczego składać ani kopiować na końcu.
+
+package imaging;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.IntConsumer;
+
+public final class TileExecutor {
+    public static final int DEFAULT_BAND_HEIGHT = 64; // Domyślna liczba wierszy w jednym pasie
+    // Największa liczba pikseli w pasie - dla bardzo szerokich obrazów pas ma mniej wierszy, żeby anulowanie (sprawdzane
+    // między pasami) zadziałało w ciągu kilku milisekund
+    private static final int MAX_BAND_PIXELS = 1 << 18;
+
+    private static final BooleanSupplier NEVER_CANCELLED = () -> false;
+    private static final IntConsumer NO_PROGRESS = percent -> { };
+    private static final RowsListener NO_ROWS = (fromRow, toRow) -> { };
+
+    // Powiadomienie o gotowym pasie: wiersze band obrazu image mają już ostateczne wartości. Wywoływane z wątków
+    // roboczych, w dowolnej kolejności pasów.
+    @FunctionalInterface
+    public interface BandListener {
+        void bandDone(BufferedImage image, Rectangle band);
+    }
+
+    // Jak BandListener, ale dla wierszy tablicy pikseli (bez obrazu)
+    @FunctionalInterface
+    interface RowsListener {
+        void rowsDone(int fromRow, int toRow);
+    }
+
+    private static final TileExecutor SHARED =
+            new TileExecutor(Runtime.getRuntime().availableProcessors(), DEFAULT_BAND_HEIGHT);
+
+    private final ForkJoinPool pool;
+    private final int bandHeight;
+
+    public TileExecutor(int parallelism, int bandHeight) {
+        if (parallelism < 1 || bandHeight < 1) {
+            throw new IllegalArgumentException("Równoległość i wysokość pasa muszą być dodatnie");
+        }
+        this.pool = new ForkJoinPool(parallelism);
+        this.bandHeight = bandHeight;
+    }
+
+    // Wspólny egzekutor używający wszystkich rdzeni procesora
+    public static TileExecutor shared() {
+        return SHARED;
+    }
+
+    public int getParallelism() {
+        return pool.getParallelism();
+    }
+
+    public int getBandHeight() {
+        return bandHeight;
+    }
+
+    // Metoda tworząca nowy obraz TYPE_INT_ARGB będący wynikiem kernela liczonego równolegle
+    public BufferedImage apply(BufferedImage source, PixelEngine.Kernel kernel) {
+        return apply(source, kernel, NEVER_CANCELLED, NO_PROGRESS);
+    }
+
+    // Jak wyżej, ale z możliwością anulowania (zwraca null) i raportowaniem postępu w procentach. Bufor wyniku pochodzi
+    // z puli i wraca do niej, jeśli zadanie zostanie anulowane.
+    public BufferedImage apply(BufferedImage source, PixelEngine.Kernel kernel, BooleanSupplier cancelled, IntConsumer progress) {
+        return apply(source, kernel, cancelled, progress, null);
+    }
+
+    // Jak wyżej, a dodatkowo każdy gotowy pas wyniku jest zgłaszany do bands (np. żeby pokazywać wynik, zanim powstanie
+    // w całości)
+    public BufferedImage apply(BufferedImage source, PixelEngine.Kernel kernel, BooleanSupplier cancelled, IntConsumer progress,
+                               BandListener bands) {
+        int width = source.getWidth();
+        int height = source.getHeight();
+        int[] src = PixelEngine.readPixels(source);
+        int[] dst = BufferPool.shared().acquire(width * height);
+        BufferedImage result = PixelEngine.wrap(dst, width, height);
+        RowsListener rows = bands == null
+                ? NO_ROWS : (fromRow, toRow) -> bands.bandDone(result, new Rectangle(0, fromRow, width, toRow - fromRow));
+        if (!execute(src, dst, width, height, kernel, cancelled, progress, rows)) {
+            BufferPool.shared().release(dst);
+            return null;
+        }
+        return result;
+    }
+
+    // Metoda uruchamiająca kernel na wszystkich pasach; zwraca false, jeśli zadanie zostało anulowane
+    public boolean execute(int[] src, int[] dst, int width, int height, PixelEngine.Kernel kernel,
+                           BooleanSupplier cancelled, IntConsumer progress) {
+        return execute(src, dst, width, height, kernel, cancelled, progress, NO_ROWS);
+    }
+
+    boolean execute(int[] src, int[] dst, int width, int height, PixelEngine.Kernel kernel,
+                    BooleanSupplier cancelled, IntConsumer progress, RowsListener rows) {
+        int rowsPerBand = Math.max(1, Math.min(bandHeight, MAX_BAND_PIXELS / Math.max(1, width)));
+        int bands = (height + rowsPerBand - 1) / rowsPerBand;
+        if (bands == 0) {
+            return !cancelled.getAsBoolean();
+        }
+        BandJob job = new BandJob(src, dst, width, height, rowsPerBand, kernel, cancelled, progress, rows);
+        pool.invoke(new BandTask(job, 0, bands));
+        return !job.isCancelled();
+    }
+
+    // Stan wspólny dla wszystkich pasów jednego zadania
+    private final class BandJob {
+        final int[] src;
+        final int[] dst;
+        final int width;
+        final int height;
+        final int rowsPerBand;
+        final PixelEngine.Kernel kernel;
+        final BooleanSupplier cancelled;
+        final IntConsumer progress;
+        final RowsListener rows;
+        final AtomicInteger rowsDone = new AtomicInteger();
+        final AtomicInteger lastPercent = new AtomicInteger();
+        volatile boolean stopped; // Raz zauważone anulowanie zatrzymuje pozostałe pasy
+
+        BandJob(int[] src, int[] dst, int width, int height, int rowsPerBand, PixelEngine.Kernel kernel,
+                BooleanSupplier cancelled, IntConsumer progress, RowsListener rows) {
+            this.src = src;
+            this.dst = dst;
+            this.width = width;
+            this.height = height;
+            this.rowsPerBand = rowsPerBand;
+            this.kernel = kernel;
+            this.cancelled = cancelled;
+            this.progress = progress;
+            this.rows = rows;
+        }
+
+        boolean isCancelled() {
+            if (!stopped && cancelled.getAsBoolean()) {
+                stopped = true;
+            }
+            return stopped;
+        }
+
+        void runBand(int band) {
+            if (isCancelled()) {
+                return;
+            }
+            int fromRow = band * rowsPerBand;
+            int toRow = Math.min(height, fromRow + rowsPerBand);
+            kernel.apply(src, dst, fromRow * width, toRow * width);
+            rows.rowsDone(fromRow, toRow);
+            reportRows(toRow - fromRow);
+        }
+
+        // Raportujemy postęp tylko wtedy, gdy zmieni się wartość procentowa
+        void reportRows(int rows) {
+            int percent = (int) ((long) rowsDone.addAndGet(rows) * 100 / height);
+            int last = lastPercent.get();
+            while (percent > last) {
+                if (lastPercent.compareAndSet(last, percent)) {
+                    progress.accept(percent);
+                    return;
+                }
+                last = lastPercent.get();
+            }
+        }
+    }
+
+    // Zadanie ForkJoin dzielące zakres pasów na pół, aż zostanie pojedynczy pas
+    private static final class BandTask extends RecursiveAction {
+        private final BandJob job;
+        private final int fromBand;
+        private final int toBand;
+
+        BandTask(BandJob job, int fromBand, int toBand) {
+            this.job = job;
+            this.fromBand = fromBand;
+            this.toBand = toBand;
+        }
+
+        @Override
+        protected void compute() {
+            if (toBand - fromBand == 1) {
+                job.runBand(fromBand);
+                return;
+            }
+            if (job.isCancelled()) {
+                return;
+            }
+            int middle = (fromBand + toBand) >>> 1;
+            invokeAll(new BandTask(job, fromBand, middle), new BandTask(job, middle, toBand));
+        }
+    }
+}
@@ -0,0 +1,170 @@
+// Obraz modyfikowany w miejscu (bez kopii całego rastra) przez wiele wątków naraz. Obraz jest podzielony na kafelki,
+// a każdy kafelek ma własną blokadę StampedLock. Edycja rozłącznych obszarów odbywa się równolegle; edycje
+// nachodzących na siebie obszarów czekają tylko na wspólne kafelki. Odczyt dla widoku jest optymistyczny - kopiujemy
+// piksele bez blokowania i sprawdzamy, czy w tym czasie nikt nie pisał; dopiero wtedy sięgamy po blokady odczytu.
+// Blokady kafelków zawsze zajmujemy w kolejności rosnących indeksów, więc nie może dojść do zakleszczenia.
+
+package imaging;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Consumer;
+import java.util.stream.IntStream;
+
+public final class TileLockedImage {
+    public static final int DEFAULT_TILE_SIZE = 256;
+
+    private final BufferedImage image;
+    private final int[] data;
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final int tilesX;
+    private final StampedLock[] locks;
+
+    // Obraz w formacie innym niż TYPE_INT_ARGB jest najpierw kopiowany - zmiany widać wtedy tylko przez getImage
+    public TileLockedImage(BufferedImage image, int tileSize) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("Rozmiar kafelka musi być dodatni");
+        }
+        this.image = PixelEngine.toIntArgb(image);
+        this.data = PixelEngine.data(this.image);
+        this.width = this.image.getWidth();
+        this.height = this.image.getHeight();
+        this.tileSize = tileSize;
+        this.tilesX = (width + tileSize - 1) / tileSize;
+        int tilesY = (height + tileSize - 1) / tileSize;
+        this.locks = new StampedLock[tilesX * tilesY];
+        for (int i = 0; i < locks.length; i++) {
+            locks[i] = new StampedLock();
+        }
+    }
+
+    public TileLockedImage(BufferedImage image) {
+        this(image, DEFAULT_TILE_SIZE);
+    }
+
+    // Obraz, na którym pracujemy; jego piksele wolno czytać bezpośrednio tylko przez snapshot lub copyTo
+    public BufferedImage getImage() {
+        return image;
+    }
+
+    // Wykonujemy kernel w miejscu na obszarze region, trzymając blokady zapisu tylko kafelków, które go obejmują
+    public void edit(Rectangle region, PixelEngine.Kernel kernel) {
+        Rectangle area = region.intersection(new Rectangle(0, 0, width, height));
+        if (area.isEmpty()) {
+            return;
+        }
+        int[] tiles = tilesOf(area);
+        long[] stamps = new long[tiles.length];
+        for (int i = 0; i < tiles.length; i++) {
+            stamps[i] = locks[tiles[i]].writeLock();
+        }
+        try {
+            for (int y = area.y; y < area.y + area.height; y++) {
+                int rowStart = y * width + area.x;
+                kernel.apply(data, data, rowStart, rowStart + area.width);
+            }
+        } finally {
+            for (int i = tiles.length - 1; i >= 0; i--) {
+                locks[tiles[i]].unlockWrite(stamps[i]);
+            }
+        }
+    }
+
+    // Cały obraz w miejscu - każdy kafelek jako osobna edycja, kafelki równolegle
+    public void applyInPlace(PixelEngine.Kernel kernel) {
+        applyInPlace(kernel, tile -> {
+        });
+    }
+
+    // Jak wyżej, a obszar każdego gotowego kafelka zgłaszamy do tileDone (na wątku, który go edytował)
+    public void applyInPlace(PixelEngine.Kernel kernel, Consumer<Rectangle> tileDone) {
+        Rectangle bounds = new Rectangle(0, 0, width, height);
+        IntStream.range(0, locks.length).parallel().forEach(tile -> {
+            int x = (tile % tilesX) * tileSize;
+            int y = (tile / tilesX) * tileSize;
+            Rectangle region = new Rectangle(x, y, tileSize, tileSize).intersection(bounds);
+            edit(region, kernel);
+            tileDone.accept(region);
+        });
+    }
+
+    // Spójna kopia całego obrazu (np. do wyświetlenia) - żadna edycja nie jest w niej widoczna tylko częściowo
+    public BufferedImage snapshot() {
+        BufferedImage copy = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        copyTo(PixelEngine.data(copy));
+        return copy;
+    }
+
+    // Spójna kopia fragmentu region (np. właśnie edytowanych kafelków) - blokujemy tylko kafelki, które go obejmują
+    public BufferedImage snapshot(Rectangle region) {
+        Rectangle area = region.intersection(new Rectangle(0, 0, width, height));
+        if (area.isEmpty()) {
+            throw new IllegalArgumentException("Fragment leży poza obrazem");
+        }
+        BufferedImage copy = new BufferedImage(area.width, area.height, BufferedImage.TYPE_INT_ARGB);
+        read(area, PixelEngine.data(copy));
+        return copy;
+    }
+
+    public void copyTo(int[] target) {
+        read(new Rectangle(0, 0, width, height), target);
+    }
+
+    // Kopiujemy wiersze obszaru area do target bez blokowania i sprawdzamy, czy w tym czasie nikt nie pisał do
+    // kafelków obszaru; jeśli pisał, kopiujemy ponownie pod blokadami odczytu tych kafelków
+    private void read(Rectangle area, int[] target) {
+        int[] tiles = tilesOf(area);
+        long[] stamps = new long[tiles.length];
+        for (int i = 0; i < tiles.length; i++) {
+            stamps[i] = locks[tiles[i]].tryOptimisticRead(); // 0, jeśli kafelek jest właśnie edytowany
+        }
+        copyRows(area, target);
+        if (allValid(tiles, stamps)) {
+            return;
+        }
+        for (int i = 0; i < tiles.length; i++) {
+            stamps[i] = locks[tiles[i]].readLock();
+        }
+        try {
+            copyRows(area, target);
+        } finally {
+            for (int i = tiles.length - 1; i >= 0; i--) {
+                locks[tiles[i]].unlockRead(stamps[i]);
+            }
+        }
+    }
+
+    private void copyRows(Rectangle area, int[] target) {
+        for (int row = 0; row < area.height; row++) {
+            System.arraycopy(data, (area.y + row) * width + area.x, target, row * area.width, area.width);
+        }
+    }
+
+    private boolean allValid(int[] tiles, long[] stamps) {
+        for (int i = 0; i < tiles.length; i++) {
+            if (stamps[i] == 0 || !locks[tiles[i]].validate(stamps[i])) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Indeksy kafelków obejmujących obszar, w kolejności rosnącej
+    private int[] tilesOf(Rectangle area) {
+        int firstX = area.x / tileSize;
+        int lastX = (area.x + area.width - 1) / tileSize;
+        int firstY = area.y / tileSize;
+        int lastY = (area.y + area.height - 1) / tileSize;
+        int[] tiles = new int[(lastX - firstX + 1) * (lastY - firstY + 1)];
+        int i = 0;
+        for (int ty = firstY; ty <= lastY; ty++) {
+            for (int tx = firstX; tx <= lastX; tx++) {
+                tiles[i++] = ty * tilesX + tx;
+            }
+        }
+        return tiles;
+    }
+}
@@ -0,0 +1,249 @@
+// Obraz podzielony na kafelki o stałym rozmiarze, trzymany poza stertą Javy. Kafelki w pamięci to bezpośrednie
+// bufory (ByteBuffer.allocateDirect) pilnowane przez LRU; kafelki wypychane z LRU trafiają do pliku tymczasowego
+// (FileChannel, zapis pozycyjny), skąd są doczytywane przy następnym użyciu. Dzięki temu obraz nie jest ograniczony
+// do 2^31 pikseli jak BufferedImage i nie obciąża GC. Kafelki, których jeszcze nie było, mogą być wczytywane
+// na żądanie przez TileLoader (np. fragment pliku w pełnej rozdzielczości z ImageSource).
+
+package imaging;
+
+import java.awt.*;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+public final class TiledImage implements AutoCloseable {
+    public static final int DEFAULT_TILE_SIZE = 512;
+    public static final int DEFAULT_RESIDENT_TILES = 64; // 64 kafelki 512x512 ARGB to 64 MB poza stertą
+
+    // Wypełnia piksele kafelka (wiersz po wierszu, region.width x region.height) danymi z zewnętrznego źródła
+    @FunctionalInterface
+    public interface TileLoader {
+        void load(Rectangle region, int[] pixels) throws IOException;
+    }
+
+    private final int width;
+    private final int height;
+    private final int tileSize;
+    private final int tilesX;
+    private final int tilesY;
+    private final int maxResidentTiles;
+    private final TileLoader loader; // Może być null - wtedy nowe kafelki są przezroczyste (same zera)
+    private final Path scratchFile;
+    private final FileChannel channel;
+    private final boolean[] stored; // Czy kafelek ma już swoją kopię w pliku tymczasowym
+    private final LinkedHashMap<Integer, Tile> resident; // Kafelki w pamięci, w kolejności ostatniego użycia
+
+    public TiledImage(int width, int height, int tileSize, int maxResidentTiles, TileLoader loader) throws IOException {
+        if (width <= 0 || height <= 0 || tileSize <= 0 || maxResidentTiles <= 0) {
+            throw new IllegalArgumentException("Wymiary, rozmiar kafelka i limit kafelków muszą być dodatnie");
+        }
+        this.width = width;
+        this.height = height;
+        this.tileSize = tileSize;
+        this.tilesX = (width + tileSize - 1) / tileSize;
+        this.tilesY = (height + tileSize - 1) / tileSize;
+        this.maxResidentTiles = maxResidentTiles;
+        this.loader = loader;
+        this.stored = new boolean[tilesX * tilesY];
+        this.resident = new LinkedHashMap<>(16, 0.75f, true);
+        this.scratchFile = Files.createTempFile("tiled-image", ".tiles");
+        scratchFile.toFile().deleteOnExit(); // Na wypadek, gdyby obraz nie został zamknięty
+        this.channel = FileChannel.open(scratchFile, StandardOpenOption.READ, StandardOpenOption.WRITE,
+                StandardOpenOption.DELETE_ON_CLOSE);
+    }
+
+    // Obraz w pełnej rozdzielczości, którego kafelki są dekodowane z pliku dopiero przy pierwszym użyciu
+    public static TiledImage of(ImageSource source) throws IOException {
+        Dimension size = source.getSize();
+        return new TiledImage(size.width, size.height, DEFAULT_TILE_SIZE, DEFAULT_RESIDENT_TILES, (region, pixels) -> {
+            BufferedImage decoded = source.read(region, 1);
+            decoded.getRGB(0, 0, region.width, region.height, pixels, 0, region.width);
+        });
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public int getTilesX() {
+        return tilesX;
+    }
+
+    public int getTilesY() {
+        return tilesY;
+    }
+
+    // Obszar kafelka we współrzędnych obrazu (kafelki na prawej i dolnej krawędzi mogą być mniejsze)
+    public Rectangle tileBounds(int tx, int ty) {
+        int x = tx * tileSize;
+        int y = ty * tileSize;
+        return new Rectangle(x, y, Math.min(tileSize, width - x), Math.min(tileSize, height - y));
+    }
+
+    // Kopiujemy piksele kafelka do tablicy (wiersz po wierszu, szerokość jak w tileBounds)
+    public synchronized void readTile(int tx, int ty, int[] pixels) throws IOException {
+        Tile tile = tile(tx, ty);
+        tile.pixels().get(pixels, 0, tile.bounds.width * tile.bounds.height);
+    }
+
+    // Zapisujemy piksele kafelka z tablicy
+    public synchronized void writeTile(int tx, int ty, int[] pixels) throws IOException {
+        Tile tile = tile(tx, ty);
+        tile.pixels().put(pixels, 0, tile.bounds.width * tile.bounds.height);
+        tile.dirty = true;
+    }
+
+    // Zamieniamy na BufferedImage tylko fragment region (np. widoczny w oknie), biorąc co subsampling-ty piksel
+    public BufferedImage toBufferedImage(Rectangle region, int subsampling) throws IOException {
+        Rectangle clipped = region.intersection(new Rectangle(0, 0, width, height));
+        int outWidth = Math.max(1, (clipped.width + subsampling - 1) / subsampling);
+        int outHeight = Math.max(1, (clipped.height + subsampling - 1) / subsampling);
+        BufferedImage result = new BufferedImage(outWidth, outHeight, BufferedImage.TYPE_INT_ARGB);
+        int[] out = PixelEngine.data(result);
+        int[] pixels = new int[tileSize * tileSize];
+        for (int ty = clipped.y / tileSize; ty * tileSize < clipped.y + clipped.height; ty++) {
+            for (int tx = clipped.x / tileSize; tx * tileSize < clipped.x + clipped.width; tx++) {
+                Rectangle bounds = tileBounds(tx, ty);
+                readTile(tx, ty, pixels);
+                copySamples(pixels, bounds, clipped, subsampling, out, outWidth, outHeight);
+            }
+        }
+        return result;
+    }
+
+    // Przepisujemy do wyniku te piksele kafelka, które wypadają na siatce podpróbkowania
+    private static void copySamples(int[] pixels, Rectangle bounds, Rectangle region, int subsampling,
+                                    int[] out, int outWidth, int outHeight) {
+        Rectangle common = bounds.intersection(region);
+        int firstRow = (common.y - region.y + subsampling - 1) / subsampling;
+        int firstCol = (common.x - region.x + subsampling - 1) / subsampling;
+        for (int oy = firstRow; oy < outHeight; oy++) {
+            int y = region.y + oy * subsampling;
+            if (y >= common.y + common.height) {
+                break;
+            }
+            int rowOffset = (y - bounds.y) * bounds.width - bounds.x;
+            for (int ox = firstCol; ox < outWidth; ox++) {
+                int x = region.x + ox * subsampling;
+                if (x >= common.x + common.width) {
+                    break;
+                }
+                out[oy * outWidth + ox] = pixels[rowOffset + x];
+            }
+        }
+    }
+
+    // Kafelek w pamięci; w razie potrzeby wczytujemy go z pliku tymczasowego albo z TileLoader
+    private Tile tile(int tx, int ty) throws IOException {
+        if (tx < 0 || ty < 0 || tx >= tilesX || ty >= tilesY) {
+            throw new IndexOutOfBoundsException("Kafelek poza obrazem: " + tx + ", " + ty);
+        }
+        int index = ty * tilesX + tx;
+        Tile tile = resident.get(index);
+        if (tile != null) {
+            return tile;
+        }
+        ByteBuffer buffer = evictIfFull();
+        boolean reused = buffer != null;
+        if (!reused) {
+            buffer = ByteBuffer.allocateDirect(tileSize * tileSize * 4).order(ByteOrder.nativeOrder());
+        }
+        tile = new Tile(index, tileBounds(tx, ty), buffer);
+        if (stored[index]) {
+            ByteBuffer target = tile.buffer.duplicate();
+            target.clear();
+            long position = offset(index);
+            while (target.hasRemaining()) {
+                if (channel.read(target, position + target.position()) < 0) {
+                    break;
+                }
+            }
+        } else if (loader != null) {
+            int[] pixels = new int[tile.bounds.width * tile.bounds.height];
+            loader.load(tile.bounds, pixels);
+            tile.pixels().put(pixels);
+            tile.dirty = true;
+        } else if (reused) {
+            IntBuffer pixels = tile.pixels(); // Nowy kafelek ma być przezroczysty, a bufor zawiera poprzedni kafelek
+            while (pixels.hasRemaining()) {
+                pixels.put(0);
+            }
+        }
+        resident.put(index, tile);
+        return tile;
+    }
+
+    // Najdawniej używany kafelek zapisujemy (jeśli się zmienił) do pliku i zwalniamy z pamięci. Zwracamy jego bufor,
+    // żeby wczytywany kafelek mógł go użyć ponownie - bufory poza stertą są drogie w alokacji, a GC zwalnia je z
+    // opóźnieniem. Null, jeśli w pamięci jest jeszcze miejsce.
+    private ByteBuffer evictIfFull() throws IOException {
+        if (resident.size() < maxResidentTiles) {
+            return null;
+        }
+        Iterator<Map.Entry<Integer, Tile>> eldest = resident.entrySet().iterator();
+        Tile tile = eldest.next().getValue();
+        eldest.remove();
+        flush(tile);
+        return tile.buffer;
+    }
+
+    private void flush(Tile tile) throws IOException {
+        if (!tile.dirty) {
+            return;
+        }
+        ByteBuffer buffer = tile.buffer.duplicate();
+        buffer.clear();
+        long position = offset(tile.index);
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, position + buffer.position());
+        }
+        stored[tile.index] = true;
+        tile.dirty = false;
+    }
+
+    private long offset(int index) {
+        return (long) index * tileSize * tileSize * 4;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        resident.clear();
+        channel.close(); // Plik tymczasowy jest usuwany przy zamknięciu (DELETE_ON_CLOSE)
+        Files.deleteIfExists(scratchFile);
+    }
+
+    private static final class Tile {
+        final int index;
+        final Rectangle bounds;
+        final ByteBuffer buffer;
+        boolean dirty;
+
+        Tile(int index, Rectangle bounds, ByteBuffer buffer) {
+            this.index = index;
+            this.bounds = bounds;
+            this.buffer = buffer;
+        }
+
+        // Widok pikseli kafelka ustawiony na początek bufora
+        IntBuffer pixels() {
+            return buffer.asIntBuffer();
+        }
+    }
+}
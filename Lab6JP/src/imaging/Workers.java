@@ -0,0 +1,60 @@
+// Wspólne pule wątków: osobna dla operacji wejścia-wyjścia (czytanie i zapis plików) i osobna, ograniczona do liczby
+// rdzeni, dla przetwarzania pikseli. Wątek czekający na wolny dysk sieciowy nie zajmuje wtedy rdzenia potrzebnego
+// do liczenia efektów. Na JVM z wątkami wirtualnymi (Java 21+) operacje I/O wykonuje wątek wirtualny na zadanie,
+// więc setki plików mogą czekać na dysk bez setek wątków systemowych; na starszych JVM używamy stałej puli.
+
+package imaging;
+
+import java.lang.reflect.Method;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+public final class Workers {
+    private static final int FALLBACK_IO_THREADS = 32; // Wątki I/O, gdy JVM nie ma wątków wirtualnych
+
+    private static final ExecutorService VIRTUAL = virtualThreadExecutor();
+    private static final ExecutorService IO = VIRTUAL != null
+            ? VIRTUAL : Executors.newFixedThreadPool(FALLBACK_IO_THREADS, daemonThreads("io"));
+    private static final ExecutorService CPU =
+            Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), daemonThreads("cpu"));
+
+    private Workers() {
+    }
+
+    // Pula dla czytania i zapisu plików
+    public static ExecutorService io() {
+        return IO;
+    }
+
+    // Pula dla przetwarzania pikseli - tyle wątków, ile rdzeni
+    public static ExecutorService cpu() {
+        return CPU;
+    }
+
+    public static boolean hasVirtualThreads() {
+        return VIRTUAL != null;
+    }
+
+    // Executors.newVirtualThreadPerTaskExecutor() szukamy przez refleksję, bo kod kompilujemy także na Javie 17;
+    // zwracamy null, jeśli metody nie ma albo wątki wirtualne są wyłączone (wersje próbne w Javie 19-20)
+    private static ExecutorService virtualThreadExecutor() {
+        try {
+            Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) factory.invoke(null);
+        } catch (ReflectiveOperationException | RuntimeException e) {
+            return null;
+        }
+    }
+
+    // Wątki demony, żeby pule nie blokowały zakończenia programu
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -0,0 +1,101 @@
+// Automatyczne poziomy i automatyczny kontrast. Z histogramu obrazu wybieramy punkt czerni i bieli (z pominięciem
+// skrajnych 0.5% pikseli, żeby pojedyncze zaszumione piksele nie blokowały rozciągnięcia) i rozciągamy zakres między
+// nimi na 0-255 tablicą LUT. Poziomy rozciągają każdą składową osobno (usuwają też zafarb), kontrast - wszystkie
+// składowe jednakowo (zachowuje barwy).
+// Tablica jest liczona raz, z histogramu obrazu, na który nakładamy efekt, i zostaje w kroku potoku - ponowne
+// przeliczenie potoku daje ten sam wynik. Dlatego efektu nie ma w rejestrze: krok tworzymy przez EffectStep.of(...).
+
+package imaging.effects;
+
+import imaging.Histogram;
+import imaging.LookupTable;
+import imaging.LutEffect;
+
+public final class AutoLevels extends LutEffect {
+    public static final double DEFAULT_CLIP = 0.005;
+
+    private final String name;
+    private final String label;
+    private final LookupTable table;
+
+    private AutoLevels(String name, String label, LookupTable table) {
+        this.name = name;
+        this.label = label;
+        this.table = table;
+    }
+
+    // Każda składowa rozciągana osobno
+    public static AutoLevels levels(Histogram histogram) {
+        return levels(histogram, DEFAULT_CLIP);
+    }
+
+    public static AutoLevels levels(Histogram histogram, double clip) {
+        return new AutoLevels("autoLevels", "Auto-poziomy", LookupTable.of(
+                stretch(histogram, clip, Histogram.Channel.RED),
+                stretch(histogram, clip, Histogram.Channel.GREEN),
+                stretch(histogram, clip, Histogram.Channel.BLUE)));
+    }
+
+    // Wszystkie składowe rozciągane tak samo - od najciemniejszego do najjaśniejszego z punktów czerni i bieli składowych
+    public static AutoLevels contrast(Histogram histogram) {
+        return contrast(histogram, DEFAULT_CLIP);
+    }
+
+    public static AutoLevels contrast(Histogram histogram, double clip) {
+        return new AutoLevels("autoContrast", "Auto-kontrast", LookupTable.of(
+                stretch(histogram, clip, Histogram.Channel.RED, Histogram.Channel.GREEN, Histogram.Channel.BLUE)));
+    }
+
+    // Tablica rozciągająca zakres od najniższego punktu czerni do najwyższego punktu bieli podanych kanałów
+    private static int[] stretch(Histogram histogram, double clip, Histogram.Channel... channels) {
+        int black = 255;
+        int white = 0;
+        for (Histogram.Channel channel : channels) {
+            black = Math.min(black, histogram.percentile(channel, clip));
+            white = Math.max(white, histogram.percentile(channel, 1 - clip));
+        }
+        int[] levels = new int[Histogram.LEVELS];
+        for (int level = 0; level < levels.length; level++) {
+            if (white <= black) {
+                levels[level] = level; // Jednolity kanał - nie ma czego rozciągać
+            } else {
+                int stretched = Math.round((level - black) * 255f / (white - black));
+                levels[level] = Math.max(0, Math.min(255, stretched));
+            }
+        }
+        return levels;
+    }
+
+    @Override
+    public String getName() {
+        return name;
+    }
+
+    @Override
+    public String getLabel() {
+        return label;
+    }
+
+    @Override
+    public LookupTable lookupTable(float parameter) {
+        return table;
+    }
+
+    // Kroki z różnymi tablicami to różne kroki (EffectStep porównuje też definicje efektów)
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof AutoLevels)) {
+            return false;
+        }
+        AutoLevels other = (AutoLevels) o;
+        return name.equals(other.name) && table.equals(other.table);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * name.hashCode() + table.hashCode();
+    }
+}
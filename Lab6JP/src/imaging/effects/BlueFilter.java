@@ -0,0 +1,57 @@
+// Filtr niebieski - zostawiamy tylko komponent niebieski
+
+package imaging.effects;
+
+import imaging.Histogram;
+import imaging.LookupTable;
+import imaging.PixelEffect;
+import imaging.PixelEngine;
+
+public final class BlueFilter implements PixelEffect {
+    private static final LookupTable TABLE = LookupTable.of(new int[Histogram.LEVELS], new int[Histogram.LEVELS],
+            LookupTable.identityLevels());
+
+    @Override
+    public String getName() {
+        return "blue";
+    }
+
+    @Override
+    public String getLabel() {
+        return "Filtr niebieski";
+    }
+
+    @Override
+    public boolean isLinear() {
+        return true;
+    }
+
+    @Override
+    public double[] colorMatrix(float parameter) {
+        return new double[]{
+                0, 0, 0, 0,
+                0, 0, 0, 0,
+                0, 0, 1, 0};
+    }
+
+    @Override
+    public boolean isMatrixExact() {
+        return true;
+    }
+
+    @Override
+    public LookupTable lookupTable(float parameter) {
+        return TABLE;
+    }
+
+    @Override
+    public PixelEngine.Kernel kernel(float parameter) {
+        return Simd.isEnabled() ? Simd.vector()::blue : BlueFilter::apply;
+    }
+
+    static void apply(int[] src, int[] dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            dst[i] = 0xff000000 | (src[i] & 0xff);
+        }
+    }
+}
@@ -0,0 +1,32 @@
+// Jasność: do każdej składowej dodajemy parametr w procentach pełnego zakresu (-100% - czerń, 100% - biel)
+
+package imaging.effects;
+
+import imaging.LookupTable;
+import imaging.LutEffect;
+import imaging.ParameterRange;
+
+public final class Brightness extends LutEffect {
+    private static final ParameterRange RANGE = new ParameterRange("Jasność (%)", -100, 100, 0);
+
+    @Override
+    public String getName() {
+        return "brightness";
+    }
+
+    @Override
+    public String getLabel() {
+        return "Jasność";
+    }
+
+    @Override
+    public ParameterRange getParameterRange() {
+        return RANGE;
+    }
+
+    @Override
+    public LookupTable lookupTable(float parameter) {
+        int offset = Math.round(parameter * 2.55f);
+        return LookupTable.tabulate(value -> value + offset);
+    }
+}
@@ -0,0 +1,32 @@
+// Kontrast: odległość składowej od środka zakresu (128) mnożymy przez 2^(parametr / 50), czyli od 1/4 (-100) do 4 (100)
+
+package imaging.effects;
+
+import imaging.LookupTable;
+import imaging.LutEffect;
+import imaging.ParameterRange;
+
+public final class Contrast extends LutEffect {
+    private static final ParameterRange RANGE = new ParameterRange("Kontrast", -100, 100, 0);
+
+    @Override
+    public String getName() {
+        return "contrast";
+    }
+
+    @Override
+    public String getLabel() {
+        return "Kontrast";
+    }
+
+    @Override
+    public ParameterRange getParameterRange() {
+        return RANGE;
+    }
+
+    @Override
+    public LookupTable lookupTable(float parameter) {
+        double factor = Math.pow(2, parameter / 50.0);
+        return LookupTable.tabulate(value -> (int) Math.round(128 + (value - 128) * factor));
+    }
+}
@@ -0,0 +1,148 @@
+// Krzywe tonalne: krzywa przechodzi przez punkty kontrolne (poziom wejścia -> poziom wyjścia), a między nimi jest
+// interpolowana monotonicznymi wielomianami trzeciego stopnia (metoda Fritscha-Carlsona) - krzywa nie "przestrzeliwuje"
+// między punktami, więc rosnące punkty dają rosnącą krzywą. Poniżej pierwszego i powyżej ostatniego punktu krzywa
+// jest pozioma. Ta sama krzywa dotyczy wszystkich składowych.
+// Punkty wybiera użytkownik w CurvesEditor, dlatego - jak AutoLevels - efektu nie ma w rejestrze.
+
+package imaging.effects;
+
+import imaging.Histogram;
+import imaging.LookupTable;
+import imaging.LutEffect;
+
+import java.util.Arrays;
+
+public final class Curves extends LutEffect {
+    private static final Curves IDENTITY = through(new int[]{0, 255}, new int[]{0, 255});
+
+    private final int[] xs;
+    private final int[] ys;
+    private final int[] levels;
+    private final LookupTable table;
+
+    private Curves(int[] xs, int[] ys) {
+        this.xs = xs;
+        this.ys = ys;
+        this.levels = interpolate(xs, ys);
+        this.table = LookupTable.of(levels);
+    }
+
+    // Krzywa, która niczego nie zmienia
+    public static Curves identity() {
+        return IDENTITY;
+    }
+
+    // Krzywa przez punkty (xs[i], ys[i]) o rosnących xs; wszystkie wartości w zakresie 0-255
+    public static Curves through(int[] xs, int[] ys) {
+        if (xs.length != ys.length || xs.length < 2) {
+            throw new IllegalArgumentException("Krzywa potrzebuje co najmniej dwóch punktów");
+        }
+        for (int i = 0; i < xs.length; i++) {
+            if (xs[i] < 0 || xs[i] > 255 || ys[i] < 0 || ys[i] > 255) {
+                throw new IllegalArgumentException("Punkt krzywej poza zakresem 0-255: " + xs[i] + ", " + ys[i]);
+            }
+            if (i > 0 && xs[i] <= xs[i - 1]) {
+                throw new IllegalArgumentException("Punkty krzywej muszą mieć rosnące poziomy wejścia");
+            }
+        }
+        return new Curves(xs.clone(), ys.clone());
+    }
+
+    public int[] getXs() {
+        return xs.clone();
+    }
+
+    public int[] getYs() {
+        return ys.clone();
+    }
+
+    // Poziom wyjścia dla poziomu wejścia value
+    public int level(int value) {
+        return levels[value];
+    }
+
+    @Override
+    public String getName() {
+        return "curves";
+    }
+
+    @Override
+    public String getLabel() {
+        return "Krzywe";
+    }
+
+    @Override
+    public LookupTable lookupTable(float parameter) {
+        return table;
+    }
+
+    private static int[] interpolate(int[] xs, int[] ys) {
+        int n = xs.length;
+        double[] secants = new double[n - 1];
+        for (int i = 0; i < n - 1; i++) {
+            secants[i] = (double) (ys[i + 1] - ys[i]) / (xs[i + 1] - xs[i]);
+        }
+        // Nachylenia w punktach: średnia sąsiednich siecznych, 0 w lokalnym ekstremum
+        double[] tangents = new double[n];
+        tangents[0] = secants[0];
+        tangents[n - 1] = secants[n - 2];
+        for (int i = 1; i < n - 1; i++) {
+            tangents[i] = secants[i - 1] * secants[i] <= 0 ? 0 : (secants[i - 1] + secants[i]) / 2;
+        }
+        // Ograniczenie Fritscha-Carlsona: zbyt strome nachylenia skracamy, żeby odcinek pozostał monotoniczny
+        for (int i = 0; i < n - 1; i++) {
+            if (secants[i] == 0) {
+                tangents[i] = 0;
+                tangents[i + 1] = 0;
+                continue;
+            }
+            double a = tangents[i] / secants[i];
+            double b = tangents[i + 1] / secants[i];
+            double length = a * a + b * b;
+            if (length > 9) {
+                double scale = 3 / Math.sqrt(length);
+                tangents[i] = scale * a * secants[i];
+                tangents[i + 1] = scale * b * secants[i];
+            }
+        }
+        int[] levels = new int[Histogram.LEVELS];
+        int segment = 0;
+        for (int value = 0; value < levels.length; value++) {
+            double y;
+            if (value <= xs[0]) {
+                y = ys[0];
+            } else if (value >= xs[n - 1]) {
+                y = ys[n - 1];
+            } else {
+                while (value > xs[segment + 1]) {
+                    segment++;
+                }
+                double h = xs[segment + 1] - xs[segment];
+                double t = (value - xs[segment]) / h;
+                double t2 = t * t;
+                double t3 = t2 * t;
+                y = (2 * t3 - 3 * t2 + 1) * ys[segment] + (t3 - 2 * t2 + t) * h * tangents[segment]
+                        + (-2 * t3 + 3 * t2) * ys[segment + 1] + (t3 - t2) * h * tangents[segment + 1];
+            }
+            levels[value] = Math.max(0, Math.min(255, (int) Math.round(y)));
+        }
+        return levels;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof Curves)) {
+            return false;
+        }
+        Curves other = (Curves) o;
+        return Arrays.equals(xs, other.xs) && Arrays.equals(ys, other.ys);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(xs) + Arrays.hashCode(ys);
+    }
+}
@@ -0,0 +1,33 @@
+// Korekcja gamma: poziom v zamienia się na 255 * (v / 255)^(1 / gamma). Gamma powyżej 1 rozjaśnia cienie i półtony,
+// poniżej 1 je przyciemnia; czerń i biel zostają na miejscu.
+
+package imaging.effects;
+
+import imaging.LookupTable;
+import imaging.LutEffect;
+import imaging.ParameterRange;
+
+public final class Gamma extends LutEffect {
+    private static final ParameterRange RANGE = new ParameterRange("Gamma", 0.1f, 5, 1);
+
+    @Override
+    public String getName() {
+        return "gamma";
+    }
+
+    @Override
+    public String getLabel() {
+        return "Gamma";
+    }
+
+    @Override
+    public ParameterRange getParameterRange() {
+        return RANGE;
+    }
+
+    @Override
+    public LookupTable lookupTable(float parameter) {
+        double exponent = 1 / parameter;
+        return LookupTable.tabulate(value -> (int) Math.round(255 * Math.pow(value / 255.0, exponent)));
+    }
+}
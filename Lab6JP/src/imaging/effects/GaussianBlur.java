@@ -0,0 +1,90 @@
+// Rozmycie Gaussa; parametr to odchylenie standardowe w pikselach. Małe rozmycia liczymy dokładnie, splotem
+// rozdzielnym. Powyżej sigma 2 okno dokładnego splotu ma ponad 13 pikseli, a pudełka są już na tyle szerokie, że dobrze
+// przybliżają rozkład, więc rozmycie składamy z trzech rozmyć pudełkowych - koszt na piksel jest wtedy stały, także
+// dla sigma 50 px (promień wpływu to około 3 sigma).
+
+package imaging.effects;
+
+import imaging.BorderMode;
+import imaging.Convolution;
+import imaging.ParameterRange;
+import imaging.PixelEngine;
+import imaging.SpatialEffect;
+
+public final class GaussianBlur implements SpatialEffect {
+    private static final ParameterRange RANGE = new ParameterRange("Sigma (px)", 0, 100, 5);
+    private static final double MAX_EXACT_SIGMA = 2;
+    private static final int BOXES = 3;
+    private static final BorderMode BORDER = BorderMode.REFLECT;
+
+    @Override
+    public String getName() {
+        return "blur";
+    }
+
+    @Override
+    public String getLabel() {
+        return "Rozmycie Gaussa";
+    }
+
+    @Override
+    public ParameterRange getParameterRange() {
+        return RANGE;
+    }
+
+    @Override
+    public int getRadius(float parameter) {
+        if (parameter <= 0) {
+            return 0;
+        }
+        if (parameter <= MAX_EXACT_SIGMA) {
+            return Convolution.gaussianWeights(parameter).length / 2;
+        }
+        int radius = 0;
+        for (int box : Convolution.boxRadiiForGaussian(parameter, BOXES)) {
+            radius += box;
+        }
+        return radius;
+    }
+
+    @Override
+    public int getPassCount(float parameter) {
+        if (parameter <= 0) {
+            return 1;
+        }
+        return parameter <= MAX_EXACT_SIGMA ? 2 : 1 + BOXES;
+    }
+
+    @Override
+    public float scaleParameter(float parameter, double scale) {
+        return (float) (parameter * scale);
+    }
+
+    @Override
+    public boolean render(int[] src, int[] dst, int width, int height, float parameter, Passes passes) {
+        if (parameter <= 0) {
+            return passes.run(src, dst, PixelEngine.identity());
+        }
+        int[] rows = passes.buffer();
+        if (parameter <= MAX_EXACT_SIGMA) {
+            float[] weights = Convolution.gaussianWeights(parameter);
+            return passes.run(src, rows, Convolution.horizontal(weights, width, height, BORDER))
+                    && passes.run(rows, dst, Convolution.vertical(weights, width, height, BORDER));
+        }
+        // Wszystkie rozmycia wierszy w jednym przebiegu, potem kolejne rozmycia kolumn na zmianę między dwoma buforami
+        int[] radii = Convolution.boxRadiiForGaussian(parameter, BOXES);
+        int[] spare = passes.buffer();
+        if (!passes.run(src, rows, Convolution.boxesHorizontal(radii, width, height, BORDER))) {
+            return false;
+        }
+        int[] in = rows;
+        for (int i = 0; i < radii.length; i++) {
+            int[] out = i == radii.length - 1 ? dst : (in == rows ? spare : rows);
+            if (!passes.run(in, out, Convolution.boxVertical(radii[i], width, height, BORDER))) {
+                return false;
+            }
+            in = out;
+        }
+        return true;
+    }
+}
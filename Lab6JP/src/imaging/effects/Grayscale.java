@@ -0,0 +1,51 @@
+// Odcień szarości jako średnia składowych r, g, b
+
+package imaging.effects;
+
+import imaging.PixelEffect;
+import imaging.PixelEngine;
+
+public final class Grayscale implements PixelEffect {
+    private static final double THIRD = 1.0 / 3.0;
+
+    @Override
+    public String getName() {
+        return "grayscale";
+    }
+
+    @Override
+    public String getLabel() {
+        return "Czarno-białe";
+    }
+
+    @Override
+    public boolean isLinear() {
+        return true;
+    }
+
+    @Override
+    public double[] colorMatrix(float parameter) {
+        return new double[]{
+                THIRD, THIRD, THIRD, 0,
+                THIRD, THIRD, THIRD, 0,
+                THIRD, THIRD, THIRD, 0};
+    }
+
+    @Override
+    public boolean isMatrixExact() {
+        return true; // Dzielenie całkowite (r + g + b) / 3 to właśnie średnia zaokrąglona w dół
+    }
+
+    @Override
+    public PixelEngine.Kernel kernel(float parameter) {
+        return Simd.isEnabled() ? Simd.vector()::grayscale : Grayscale::apply;
+    }
+
+    static void apply(int[] src, int[] dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            int pixel = src[i];
+            int gray = (((pixel >> 16) & 0xff) + ((pixel >> 8) & 0xff) + (pixel & 0xff)) / 3;
+            dst[i] = 0xff000000 | (gray << 16) | (gray << 8) | gray;
+        }
+    }
+}
@@ -0,0 +1,55 @@
+// Negatyw - każda składowa c zamienia się na 255 - c
+
+package imaging.effects;
+
+import imaging.LookupTable;
+import imaging.PixelEffect;
+import imaging.PixelEngine;
+
+public final class Invert implements PixelEffect {
+    private static final LookupTable TABLE = LookupTable.tabulate(value -> 255 - value);
+
+    @Override
+    public String getName() {
+        return "invert";
+    }
+
+    @Override
+    public String getLabel() {
+        return "Inwersja";
+    }
+
+    @Override
+    public boolean isLinear() {
+        return true;
+    }
+
+    @Override
+    public double[] colorMatrix(float parameter) {
+        return new double[]{
+                -1, 0, 0, 255,
+                0, -1, 0, 255,
+                0, 0, -1, 255};
+    }
+
+    @Override
+    public boolean isMatrixExact() {
+        return true;
+    }
+
+    @Override
+    public LookupTable lookupTable(float parameter) {
+        return TABLE;
+    }
+
+    @Override
+    public PixelEngine.Kernel kernel(float parameter) {
+        return Simd.isEnabled() ? Simd.vector()::invert : Invert::apply;
+    }
+
+    static void apply(int[] src, int[] dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            dst[i] = 0xff000000 | ~src[i];
+        }
+    }
+}
@@ -0,0 +1,20 @@
+// Kernele efektów punktowych, które mają też wersję na Vector API. Implementacja (VectorKernels) leży w osobnym
+// katalogu źródeł src-vector, kompilowanym z --add-modules jdk.incubator.vector, a Simd ładuje ją przez refleksję -
+// dzięki temu reszta silnika kompiluje się i działa bez modułu inkubatora. Każda metoda musi dawać dokładnie te same
+// piksele co odpowiednia wersja skalarna (Invert.apply, Saturation.scalarKernel itd.).
+
+package imaging.effects;
+
+import imaging.PixelEngine;
+
+interface PointKernels {
+    void invert(int[] src, int[] dst, int from, int to);
+
+    void blue(int[] src, int[] dst, int from, int to);
+
+    void grayscale(int[] src, int[] dst, int from, int to);
+
+    void sepia(int[] src, int[] dst, int from, int to);
+
+    PixelEngine.Kernel saturation(int saturationQ16);
+}
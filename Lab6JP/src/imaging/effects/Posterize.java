@@ -0,0 +1,32 @@
+// Posteryzacja: każda składowa przyjmuje tylko tyle równo rozłożonych poziomów, ile podano w parametrze
+
+package imaging.effects;
+
+import imaging.LookupTable;
+import imaging.LutEffect;
+import imaging.ParameterRange;
+
+public final class Posterize extends LutEffect {
+    private static final ParameterRange RANGE = new ParameterRange("Liczba poziomów", 2, 64, 4);
+
+    @Override
+    public String getName() {
+        return "posterize";
+    }
+
+    @Override
+    public String getLabel() {
+        return "Posteryzacja";
+    }
+
+    @Override
+    public ParameterRange getParameterRange() {
+        return RANGE;
+    }
+
+    @Override
+    public LookupTable lookupTable(float parameter) {
+        int steps = Math.round(parameter) - 1;
+        return LookupTable.tabulate(value -> Math.round(Math.round(value * steps / 255f) * 255f / steps));
+    }
+}
@@ -0,0 +1,73 @@
+// Zmiana nasycenia o współczynnik 0-2 (1 - bez zmian). Efekt jest punktowy, ale nie ma tablicy LUT - składowe wyniku
+// zależą od wszystkich składowych wejścia.
+
+package imaging.effects;
+
+import imaging.ParameterRange;
+import imaging.PixelEffect;
+import imaging.PixelEngine;
+
+public final class Saturation implements PixelEffect {
+    private static final ParameterRange RANGE = new ParameterRange("Nasycenie", 0, 2, 1);
+
+    @Override
+    public String getName() {
+        return "saturation";
+    }
+
+    @Override
+    public String getLabel() {
+        return "Nasycenie";
+    }
+
+    @Override
+    public ParameterRange getParameterRange() {
+        return RANGE;
+    }
+
+    @Override
+    public PixelEngine.Kernel kernel(float parameter) {
+        int saturationQ16 = toQ16(parameter);
+        return Simd.isEnabled() ? Simd.vector().saturation(saturationQ16) : scalarKernel(saturationQ16);
+    }
+
+    static PixelEngine.Kernel scalarKernel(int saturationQ16) {
+        return (src, dst, from, to) -> {
+            for (int i = from; i < to; i++) {
+                dst[i] = saturate(src[i], saturationQ16);
+            }
+        };
+    }
+
+    // Współczynnik w arytmetyce stałoprzecinkowej 16.16
+    private static int toQ16(float saturation) {
+        return Math.round(saturation * 65536);
+    }
+
+    // Zmiana nasycenia bez konwersji do HSB i bez alokacji. W modelu HSB jasność to max(r, g, b), a odcień zależy tylko
+    // od proporcji (max - c) / (max - min), więc wystarczy przeskalować odległość każdej składowej od maksimum.
+    // Nasycenie S = (max - min) / max nie może przekroczyć 1, dlatego współczynnik ograniczamy do max / (max - min).
+    // Wynik różni się od Color.RGBtoHSB/HSBtoRGB najwyżej o 1 na składową (zaokrąglenia float).
+    static int saturate(int pixel, int saturationQ16) {
+        int r = (pixel >> 16) & 0xff;
+        int g = (pixel >> 8) & 0xff;
+        int b = pixel & 0xff;
+        int max = Math.max(r, Math.max(g, b));
+        int delta = max - Math.min(r, Math.min(g, b));
+        if (delta == 0) {
+            return 0xff000000 | pixel; // Odcień szarości - nasycenie jest zerowe i pozostaje zerowe
+        }
+        if ((long) saturationQ16 * delta >= (long) max << 16) {
+            // Nasycenie osiąga 1 - najmniejsza składowa spada do zera
+            int half = delta >> 1;
+            r = max - ((max - r) * max + half) / delta;
+            g = max - ((max - g) * max + half) / delta;
+            b = max - ((max - b) * max + half) / delta;
+        } else {
+            r = max - (((max - r) * saturationQ16 + 0x8000) >> 16);
+            g = max - (((max - g) * saturationQ16 + 0x8000) >> 16);
+            b = max - (((max - b) * saturationQ16 + 0x8000) >> 16);
+        }
+        return 0xff000000 | (r << 16) | (g << 8) | b;
+    }
+}
@@ -0,0 +1,60 @@
+// Sepia według współczynników Microsoftu. Składowe wyniku mogą przekroczyć 255, więc są przycinane.
+
+package imaging.effects;
+
+import imaging.PixelEffect;
+import imaging.PixelEngine;
+
+public final class Sepia implements PixelEffect {
+    @Override
+    public String getName() {
+        return "sepia";
+    }
+
+    @Override
+    public String getLabel() {
+        return "Sepia";
+    }
+
+    @Override
+    public boolean isLinear() {
+        return true;
+    }
+
+    @Override
+    public double[] colorMatrix(float parameter) {
+        return new double[]{
+                0.393, 0.769, 0.189, 0,
+                0.349, 0.686, 0.168, 0,
+                0.272, 0.534, 0.131, 0};
+    }
+
+    @Override
+    public boolean preservesRange() {
+        return false; // Np. dla białego piksela czerwona składowa to 345
+    }
+
+    // isMatrixExact zostaje false: kernel obcina sumę iloczynów double jak pierwotny program, a ta przy wynikach
+    // całkowitych bywa o ułamek mniejsza od dokładnej (np. 0.999...), więc nie zawsze równa się macierzy zaokrąglonej w dół
+
+    @Override
+    public PixelEngine.Kernel kernel(float parameter) {
+        return Simd.isEnabled() ? Simd.vector()::sepia : Sepia::apply;
+    }
+
+    static void apply(int[] src, int[] dst, int from, int to) {
+        for (int i = from; i < to; i++) {
+            dst[i] = sepia(src[i]);
+        }
+    }
+
+    static int sepia(int pixel) {
+        int r = (pixel >> 16) & 0xff;
+        int g = (pixel >> 8) & 0xff;
+        int b = pixel & 0xff;
+        int tr = Math.min(255, (int) (0.393 * r + 0.769 * g + 0.189 * b));
+        int tg = Math.min(255, (int) (0.349 * r + 0.686 * g + 0.168 * b));
+        int tb = Math.min(255, (int) (0.272 * r + 0.534 * g + 0.131 * b));
+        return 0xff000000 | (tr << 16) | (tg << 8) | tb;
+    }
+}
@@ -0,0 +1,46 @@
+// Wyostrzanie maską 3x3: środek 1 + 4a, czterej sąsiedzi -a, gdzie a to siła efektu
+
+package imaging.effects;
+
+import imaging.BorderMode;
+import imaging.Convolution;
+import imaging.ParameterRange;
+import imaging.SpatialEffect;
+
+public final class Sharpen implements SpatialEffect {
+    private static final ParameterRange RANGE = new ParameterRange("Siła", 0, 5, 1);
+
+    @Override
+    public String getName() {
+        return "sharpen";
+    }
+
+    @Override
+    public String getLabel() {
+        return "Wyostrzanie";
+    }
+
+    @Override
+    public ParameterRange getParameterRange() {
+        return RANGE;
+    }
+
+    @Override
+    public int getRadius(float parameter) {
+        return 1;
+    }
+
+    @Override
+    public int getPassCount(float parameter) {
+        return 1;
+    }
+
+    @Override
+    public boolean render(int[] src, int[] dst, int width, int height, float parameter, Passes passes) {
+        float[] weights = {
+                0, -parameter, 0,
+                -parameter, 1 + 4 * parameter, -parameter,
+                0, -parameter, 0};
+        return passes.run(src, dst, Convolution.convolve3x3(weights, width, height, BorderMode.REFLECT));
+    }
+}
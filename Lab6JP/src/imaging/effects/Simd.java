@@ -0,0 +1,53 @@
+// Wybór implementacji kerneli efektów punktowych. Jeśli JVM uruchomiono z --add-modules jdk.incubator.vector,
+// wbudowane efekty używają kerneli z VectorKernels (kilka pikseli naraz w rejestrach SIMD), a w przeciwnym razie
+// zwykłych pętli skalarnych. Obie wersje dają identyczne piksele. Kernele wektorowe można wyłączyć właściwością
+// -Dimaging.simd=false albo przez setEnabled (np. żeby porównać obie wersje w benchmarku).
+// VectorKernels jest w osobnym katalogu źródeł src-vector (moduł Lab6JP-vector w IntelliJ, z opcją javac
+// --add-modules jdk.incubator.vector); bez niego na ścieżce klas efekty po prostu używają kerneli skalarnych.
+
+package imaging.effects;
+
+public final class Simd {
+    private static final PointKernels VECTOR = load();
+    private static final boolean AVAILABLE = VECTOR != null;
+    private static volatile boolean enabled = AVAILABLE && !"false".equals(System.getProperty("imaging.simd"));
+
+    private Simd() {
+    }
+
+    // Czy moduł jdk.incubator.vector jest dostępny w tej JVM
+    public static boolean isAvailable() {
+        return AVAILABLE;
+    }
+
+    // Czy nowo tworzone kernele są wektorowe (kernele już utworzone się nie zmieniają)
+    public static boolean isEnabled() {
+        return enabled;
+    }
+
+    public static void setEnabled(boolean enable) {
+        if (enable && !AVAILABLE) {
+            throw new IllegalStateException("Moduł jdk.incubator.vector nie jest dostępny");
+        }
+        enabled = enable;
+    }
+
+    // Kernele wektorowe; wolno je wywołać tylko wtedy, gdy isAvailable zwraca true
+    static PointKernels vector() {
+        return VECTOR;
+    }
+
+    // Bez modułu w warstwie startowej klasa VectorKernels nie da się załadować, a bez src-vector na ścieżce klas jej
+    // nie ma; ładujemy ją tutaj, żeby błąd wystąpił raz i w kontrolowanym miejscu, a nie przy pierwszym efekcie
+    private static PointKernels load() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isEmpty()) {
+            return null;
+        }
+        try {
+            return Class.forName("imaging.effects.VectorKernels", true, Simd.class.getClassLoader())
+                    .asSubclass(PointKernels.class).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,34 @@
+// Wykrywanie krawędzi operatorem Sobela - jasność piksela wyniku to siła gradientu jasności obrazu
+
+package imaging.effects;
+
+import imaging.BorderMode;
+import imaging.Convolution;
+import imaging.SpatialEffect;
+
+public final class SobelEdges implements SpatialEffect {
+    @Override
+    public String getName() {
+        return "sobel";
+    }
+
+    @Override
+    public String getLabel() {
+        return "Krawędzie";
+    }
+
+    @Override
+    public int getRadius(float parameter) {
+        return 1;
+    }
+
+    @Override
+    public int getPassCount(float parameter) {
+        return 1;
+    }
+
+    @Override
+    public boolean render(int[] src, int[] dst, int width, int height, float parameter, Passes passes) {
+        return passes.run(src, dst, Convolution.sobel(width, height, BorderMode.REFLECT));
+    }
+}
@@ -0,0 +1,32 @@
+// Progowanie każdej składowej osobno: poziomy od progu w górę stają się 255, niższe - 0. Na obrazie czarno-białym
+// daje to zwykłe progowanie jasności.
+
+package imaging.effects;
+
+import imaging.LookupTable;
+import imaging.LutEffect;
+import imaging.ParameterRange;
+
+public final class Threshold extends LutEffect {
+    private static final ParameterRange RANGE = new ParameterRange("Próg", 0, 255, 128);
+
+    @Override
+    public String getName() {
+        return "threshold";
+    }
+
+    @Override
+    public String getLabel() {
+        return "Progowanie";
+    }
+
+    @Override
+    public ParameterRange getParameterRange() {
+        return RANGE;
+    }
+
+    @Override
+    public LookupTable lookupTable(float parameter) {
+        return LookupTable.tabulate(value -> value >= parameter ? 255 : 0);
+    }
+}